@@ -0,0 +1,53 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.List;
+import java.util.Random;
+
+import static loa.Piece.*;
+
+/**
+ * The standard suite of positions used by the benchmarks.
+ *
+ * @author ChengXu
+ */
+final class BenchPositions {
+
+	/** Names of the positions, as accepted by get. */
+	static final String INITIAL = "initial", BOARD1 = "board1",
+			BOARD2 = "board2", BOARD3 = "board3", BOARD4 = "board4",
+			MIDGAME = "midgame";
+
+	/** Number of plies played to reach the MIDGAME position. */
+	private static final int MIDGAME_PLIES = 12;
+	/** Seed of the random choices that lead to the MIDGAME position. */
+	private static final long MIDGAME_SEED = 61;
+
+	/** Return a new Board holding the position named NAME. */
+	static Board get(String name) {
+		switch (name) {
+		case INITIAL:
+			return new Board();
+		case BOARD1:
+			return new Board(BoardTest.BOARD1, BP);
+		case BOARD2:
+			return new Board(BoardTest.BOARD2, BP);
+		case BOARD3:
+			return new Board(BoardTest.BOARD3, BP);
+		case BOARD4:
+			return new Board(BoardTest.BOARD4, BP);
+		case MIDGAME:
+			Board board = new Board();
+			Random random = new Random(MIDGAME_SEED);
+			for (int i = 0; i < MIDGAME_PLIES && !board.gameOver(); i++) {
+				List<Move> moves = board.legalMoves();
+				board.makeMove(moves.get(random.nextInt(moves.size())));
+			}
+			return board;
+		default:
+			throw new IllegalArgumentException("unknown position: " + name);
+		}
+	}
+
+}
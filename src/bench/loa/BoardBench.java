@@ -0,0 +1,120 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static loa.Piece.*;
+
+/**
+ * Benchmarks of the basic Board operations used by the search. Operations
+ * whose results Board caches (winner(), value()) are measured together with
+ * the makeMove/retract pair that invalidates the cache; subtract
+ * makeRetract to isolate them.
+ *
+ * @author ChengXu
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBench {
+
+	/** Name of the position measured (see BenchPositions). */
+	@Param({ "initial", "board1", "board2", "board3", "board4", "midgame" })
+	public String position;
+
+	/** Set up the boards and moves used by the benchmarks. */
+	@Setup
+	public void setup() {
+		_board = BenchPositions.get(position);
+		_copy = new Board();
+		_numMoves = _board.generateMoves(_moves, 0);
+		_move = Move.mv(_moves[0]);
+	}
+
+	/** Make and retract every legal move in turn. */
+	@Benchmark
+	public int makeRetract() {
+		int result = 0;
+		for (int i = 0; i < _numMoves; i++) {
+			_board.makeMove(Move.mv(_moves[i]));
+			result += _board.movesMade();
+			_board.retract();
+		}
+		return result;
+	}
+
+	/** Generate all legal moves as a List. */
+	@Benchmark
+	public List<Move> legalMoves() {
+		return _board.legalMoves();
+	}
+
+	/** Generate all legal moves into a reused buffer. */
+	@Benchmark
+	public int generateMoves() {
+		return _board.generateMoves(_buffer, 0);
+	}
+
+	/** Make one move, compute the winner, and retract. */
+	@Benchmark
+	public Piece winner() {
+		_board.makeMove(_move);
+		Piece result = _board.winner();
+		_board.retract();
+		return result;
+	}
+
+	/** Make one move, test the contiguity of both sides, and retract. */
+	@Benchmark
+	public boolean piecesContiguous() {
+		_board.makeMove(_move);
+		boolean result = _board.piecesContiguous(BP)
+				| _board.piecesContiguous(WP);
+		_board.retract();
+		return result;
+	}
+
+	/** Make one move, evaluate the result statically, and retract. */
+	@Benchmark
+	public int valueBPMinusWP() {
+		_board.makeMove(_move);
+		int result = _board.valueBPMinusWP();
+		_board.retract();
+		return result;
+	}
+
+	/** Copy the position into another Board. */
+	@Benchmark
+	public Board copyFrom() {
+		_copy.copyFrom(_board);
+		return _copy;
+	}
+
+	/** The position measured and a Board to copy it into. */
+	private Board _board, _copy;
+	/** Codes of the legal moves in _board and their number. */
+	private int[] _moves = new int[Board.MAX_MOVES];
+	private int _numMoves;
+	/** The first legal move in _board. */
+	private Move _move;
+	/** Buffer for generateMoves. */
+	private int[] _buffer = new int[Board.MAX_MOVES];
+
+}
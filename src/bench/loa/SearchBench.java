@@ -0,0 +1,77 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of fixed-depth searches by the Searcher that MachinePlayer
+ * uses, each starting from an empty transposition table and a fresh
+ * Searcher (and so fresh move-ordering history). The search makes no random
+ * choices, so every invocation does the same work.
+ *
+ * @author ChengXu
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SearchBench {
+
+	/** Size of the transposition table used, in megabytes. */
+	private static final int TABLE_SIZE_MB = 4;
+
+	/**
+	 * Name of the position searched (see BenchPositions). The other
+	 * positions are finished games, which are not searched.
+	 */
+	@Param({ "initial", "board1", "midgame" })
+	public String position;
+
+	/** Depth of the search. */
+	@Param({ "1", "2", "3", "4" })
+	public int depth;
+
+	/** Create the position and table. */
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		_board = BenchPositions.get(position);
+		_table = new TranspositionTable(TABLE_SIZE_MB);
+	}
+
+	/** Start each search from an empty table and a fresh Searcher. */
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		_table.clear();
+		_searcher = new Searcher(_board, _table, Long.MAX_VALUE);
+	}
+
+	/** Search _board to DEPTH. */
+	@Benchmark
+	public int search() {
+		return _searcher.search(depth);
+	}
+
+	/** The position searched. */
+	private Board _board;
+	/** The transposition table used by the search. */
+	private TranspositionTable _table;
+	/** The Searcher measured. */
+	private Searcher _searcher;
+
+}
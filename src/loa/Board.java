@@ -4,13 +4,12 @@ package loa;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Formatter;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 
+import static loa.EvalWeights.*;
 import static loa.Piece.*;
 import static loa.Square.*;
 import static org.junit.Assert.assertArrayEquals;
@@ -25,6 +24,12 @@ class Board {
 	/** Default number of moves for each side that results in a draw. */
 	static final int DEFAULT_MOVE_LIMIT = 60;
 
+	/**
+	 * Upper bound on the number of legal moves in any position, including
+	 * those set up with set() that have more than the usual 12 pieces a side.
+	 */
+	static final int MAX_MOVES = 8 * NUM_SQUARES;
+
 	/** Pattern describing a valid square designator (cr). */
 	static final Pattern ROW_COL = Pattern.compile("^[a-h][1-8]$");
 
@@ -60,26 +65,23 @@ class Board {
 		_moveLimit = DEFAULT_MOVE_LIMIT;
 		_winnerKnown = false;
 		_winner = null;
-		_subsetsInitialized = false;
-		_blackPieces.clear();
-		_whitePieces.clear();
+		_black = _white = 0L;
 		_moves.clear();
-		_blackClusters.clear();
-		_whiteClusters.clear();
-		_blackRegionSizes.clear();
-		_whiteRegionSizes.clear();
 
 		for (int r = 0; r < contents.length; r++) {
 			for (int c = 0; c < contents[r].length; c++) {
 				Piece piece = contents[r][c];
-				int idx = sq(c, r).index();
-				_board[idx] = piece;
-				if (piece != EMP) {
-					getPieces(piece).add(idx);
+				if (piece == BP) {
+					_black |= bit(sq(c, r));
+				} else if (piece == WP) {
+					_white |= bit(sq(c, r));
 				}
 			}
 		}
-		computeRegions();
+		countLines();
+		computeSums();
+		computeQuads();
+		computeKey();
 	}
 
 	/** Set me to the initial configuration. */
@@ -96,27 +98,32 @@ class Board {
 		_moveLimit = board._moveLimit;
 		_winner = board._winner;
 		_winnerKnown = board._winnerKnown;
-		_subsetsInitialized = false;
-		_blackPieces.clear();
-		_whitePieces.clear();
-		_moves.clear();
-		_blackClusters.clear();
-		_whiteClusters.clear();
-		_blackRegionSizes.clear();
-		_whiteRegionSizes.clear();
-		for (int i = 0; i < board._board.length; i++) {
-			_board[i] = board._board[i];
-			if (_board[i] != EMP) {
-				getPieces(_board[i]).add(i);
-			}
+		_black = board._black;
+		_white = board._white;
+		_key = board._key;
+		System.arraycopy(board._lineCounts, 0, _lineCounts, 0,
+				_lineCounts.length);
+		System.arraycopy(board._colSums, 0, _colSums, 0, _colSums.length);
+		System.arraycopy(board._rowSums, 0, _rowSums, 0, _rowSums.length);
+		System.arraycopy(board._squareSums, 0, _squareSums, 0,
+				_squareSums.length);
+		for (int side = 0; side < _quadCounts.length; side++) {
+			System.arraycopy(board._quadCounts[side], 0, _quadCounts[side], 0,
+					QUAD_TYPES);
 		}
+		_moves.clear();
 		_moves.addAll(board._moves);
-		computeRegions();
 	}
 
 	/** Return the contents of the square at SQ. */
 	Piece get(Square sq) {
-		return _board[sq.index()];
+		long b = bit(sq);
+		if ((_black & b) != 0) {
+			return BP;
+		} else if ((_white & b) != 0) {
+			return WP;
+		}
+		return EMP;
 	}
 
 	/**
@@ -124,10 +131,36 @@ class Board {
 	 * if NEXT is not null.
 	 */
 	void set(Square sq, Piece v, Piece next) {
-		_board[sq.index()] = v;
+		long b = bit(sq);
+		Piece old = get(sq);
+		if (old != EMP) {
+			long pieces = pieces(old);
+			updateQuads(old.ordinal(), pieces, pieces & ~b, sq.index());
+			addToLines(sq.index(), -1);
+			addToSums(old.ordinal(), sq.index(), -1);
+			_key ^= ZOBRIST[old.ordinal()][sq.index()];
+		}
+		if (v != EMP) {
+			long pieces = pieces(v) & ~b;
+			updateQuads(v.ordinal(), pieces, pieces | b, sq.index());
+			addToLines(sq.index(), 1);
+			addToSums(v.ordinal(), sq.index(), 1);
+			_key ^= ZOBRIST[v.ordinal()][sq.index()];
+		}
+		if (next != null && next != _turn) {
+			_key ^= ZOBRIST_WHITE_TO_MOVE;
+		}
+		_black &= ~b;
+		_white &= ~b;
+		if (v == BP) {
+			_black |= b;
+		} else if (v == WP) {
+			_white |= b;
+		}
 		if (next != null) {
 			_turn = next;
-		} 
+		}
+		_winnerKnown = false;
 	}
 
 	/**
@@ -143,24 +176,54 @@ class Board {
 		_winnerKnown = false;
 	}
 
+	/**
+	 * Return the number of moves that may still be made before the game is
+	 * tied.
+	 */
+	int movesLeft() {
+		return Math.max(0, 2 * _moveLimit - movesMade());
+	}
+
 	/**
 	 * Assuming isLegal(MOVE), make MOVE. Assumes MOVE.isCapture() is false.
 	 */
 	void makeMove(Move move) {
 		assert move != null;
 		assert isLegal(move);
-		set(move.getFrom(), EMP);
-		getPieces(_turn).remove(move.getFrom().index());
-		boolean capture = get(move.getTo()) == _turn.opposite();
-		set(move.getTo(), _turn);
-		getPieces(_turn).add(move.getTo().index());
+		long from = bit(move.getFrom()), to = bit(move.getTo());
+		boolean capture;
+		if (_turn == BP) {
+			capture = (_white & to) != 0;
+			_black ^= from | to;
+			_white &= ~to;
+		} else {
+			capture = (_black & to) != 0;
+			_white ^= from | to;
+			_black &= ~to;
+		}
+		int fromIdx = move.getFrom().index(), toIdx = move.getTo().index();
+		long own = pieces(_turn), before = own ^ from ^ to;
+		updateQuads(_turn.ordinal(), before, before ^ from, fromIdx);
+		updateQuads(_turn.ordinal(), before ^ from, own, toIdx);
 		if (capture) {
-			getPieces(_turn.opposite()).remove(move.getTo().index());
+			long other = pieces(_turn.opposite());
+			updateQuads(_turn.opposite().ordinal(), other | to, other, toIdx);
+		}
+		addToLines(fromIdx, -1);
+		addToSums(_turn.ordinal(), fromIdx, -1);
+		addToSums(_turn.ordinal(), toIdx, 1);
+		_key ^= ZOBRIST[_turn.ordinal()][fromIdx]
+				^ ZOBRIST[_turn.ordinal()][toIdx] ^ ZOBRIST_WHITE_TO_MOVE;
+		if (capture) {
+			addToSums(_turn.opposite().ordinal(), toIdx, -1);
+			_key ^= ZOBRIST[_turn.opposite().ordinal()][toIdx];
+		} else {
+			addToLines(toIdx, 1);
 		}
 		move = capture ? move.captureMove() : move;
 		_moves.add(move);
 		_turn = _turn.opposite();
-		_subsetsInitialized = false;
+		_winnerKnown = false;
 	}
 
 	/**
@@ -169,19 +232,38 @@ class Board {
 	 */
 	void retract() {
 		assert movesMade() > 0;
-		Move lastMove = lastMove();
+		Move lastMove = _moves.remove(_moves.size() - 1);
+		long from = bit(lastMove.getFrom()), to = bit(lastMove.getTo());
+		long captured = lastMove.isCapture() ? to : 0L;
 		_turn = _turn.opposite();
-		if (lastMove.isCapture()) {
-			set(lastMove.getTo(), _turn.opposite());
-			getPieces(_turn.opposite()).add(lastMove.getTo().index());
+		if (_turn == BP) {
+			_black ^= from | to;
+			_white |= captured;
+		} else {
+			_white ^= from | to;
+			_black |= captured;
+		}
+		int fromIdx = lastMove.getFrom().index();
+		int toIdx = lastMove.getTo().index();
+		long own = pieces(_turn), after = own ^ from ^ to;
+		updateQuads(_turn.ordinal(), after, after ^ to, toIdx);
+		updateQuads(_turn.ordinal(), after ^ to, own, fromIdx);
+		if (captured != 0) {
+			long other = pieces(_turn.opposite());
+			updateQuads(_turn.opposite().ordinal(), other & ~to, other, toIdx);
+		}
+		addToLines(fromIdx, 1);
+		addToSums(_turn.ordinal(), fromIdx, 1);
+		addToSums(_turn.ordinal(), toIdx, -1);
+		_key ^= ZOBRIST[_turn.ordinal()][fromIdx]
+				^ ZOBRIST[_turn.ordinal()][toIdx] ^ ZOBRIST_WHITE_TO_MOVE;
+		if (captured == 0) {
+			addToLines(toIdx, -1);
 		} else {
-			set(lastMove.getTo(), EMP);
+			addToSums(_turn.opposite().ordinal(), toIdx, 1);
+			_key ^= ZOBRIST[_turn.opposite().ordinal()][toIdx];
 		}
-		getPieces(_turn).remove(lastMove.getTo().index());
-		getPieces(_turn).add(lastMove.getFrom().index());
-		set(lastMove.getFrom(), _turn);
-		_moves.remove(_moves.size() - 1);
-		_subsetsInitialized = false;
+		_winnerKnown = false;
 	}
 
 	/** Return the last move */
@@ -224,34 +306,191 @@ class Board {
 
 	/** Return a sequence of all legal moves from this SQUARE. */
 	List<Move> legalMoves(Square square) {
-		ArrayList<Move> aList = new ArrayList<>();
+		int[] codes = new int[MAX_MOVES];
+		return toMoves(codes, generateMoves(square, codes, 0));
+	}
+
+	/** Return a sequence of all legal moves from this turn. */
+	List<Move> legalMoves() {
+		int[] codes = new int[MAX_MOVES];
+		return toMoves(codes, generateMoves(codes, 0));
+	}
+
+	/** Return the Moves whose codes are CODES[0 .. N-1]. */
+	private static List<Move> toMoves(int[] codes, int n) {
+		ArrayList<Move> aList = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			aList.add(Move.mv(codes[i]));
+		}
+		return aList;
+	}
+
+	/**
+	 * Store the codes (see Move.code()) of all legal moves for the side to
+	 * move into MOVES, starting at MOVES[START], and return the index just
+	 * past the last one stored. MOVES must have room for MAX_MOVES codes past
+	 * START. Allocates nothing.
+	 */
+	int generateMoves(int[] moves, int start) {
+		for (long m = pieces(_turn); m != 0; m &= m - 1) {
+			start = generateMoves(Long.numberOfTrailingZeros(m), moves, start);
+		}
+		return start;
+	}
+
+	/**
+	 * As for generateMoves(MOVES, START), but only for moves from SQUARE.
+	 */
+	int generateMoves(Square square, int[] moves, int start) {
+		if ((pieces(_turn) & bit(square)) == 0) {
+			return start;
+		}
+		return generateMoves(square.index(), moves, start);
+	}
+
+	/**
+	 * As for generateMoves(MOVES, START), but only for moves from the square
+	 * with index FROM, which must hold a piece of the side to move.
+	 */
+	private int generateMoves(int from, int[] moves, int start) {
+		long own = pieces(_turn), opp = pieces(_turn.opposite());
+		int[] lines = LINES[from];
+		int[][] dests = DESTS[from];
 		for (int i = 0; i < 4; i++) {
-			int steps = moveSteps(square, i);
-			Square to1 = square.moveDest(i, steps);
-			Square to2 = square.moveDest(i + 4, steps);
-			if (isLegal(square, to1)) {
-				aList.add(Move.mv(square, to1, get(to1) == _turn.opposite()));
+			int steps = _lineCounts[lines[i]];
+			for (int dir = i; dir < 8; dir += 4) {
+				int to = dests[dir][steps];
+				if (to >= 0 && (own & (1L << to)) == 0
+						&& (BETWEEN[from][to] & opp) == 0) {
+					moves[start++] = Move.code(from, to,
+							(opp & (1L << to)) != 0);
+				}
 			}
-			if (isLegal(square, to2)) {
-				aList.add(Move.mv(square, to2, get(to2) == _turn.opposite()));
+		}
+		return start;
+	}
+
+	/**
+	 * As for generateMoves(MOVES, START), but for the position in which the
+	 * side to move has the pieces OWN and its opponent the pieces OPP,
+	 * rather than for this Board. Allocates nothing.
+	 */
+	static int generateMoves(long own, long opp, int[] moves, int start) {
+		long occupied = own | opp;
+		for (long m = own; m != 0; m &= m - 1) {
+			int from = Long.numberOfTrailingZeros(m);
+			int[] lines = LINES[from];
+			int[][] dests = DESTS[from];
+			for (int i = 0; i < 4; i++) {
+				int steps = Long.bitCount(LINE_MASKS[lines[i]] & occupied);
+				for (int dir = i; dir < 8; dir += 4) {
+					int to = dests[dir][steps];
+					if (to >= 0 && (own & (1L << to)) == 0
+							&& (BETWEEN[from][to] & opp) == 0) {
+						moves[start++] = Move.code(from, to,
+								(opp & (1L << to)) != 0);
+					}
+				}
 			}
 		}
-		return aList;
+		return start;
 	}
 
-	/** Return a sequence of all legal moves from this turn. */
-	List<Move> legalMoves() {
-		ArrayList<Move> arrayList = new ArrayList<>();
-		for (Integer integer : getPieces(turn())) {
-			Square square = squareByIndex(integer.intValue());
-			arrayList.addAll(legalMoves(square));
+	/**
+	 * Return the number of legal moves SIDE would have if it were to move,
+	 * without generating them.
+	 */
+	int countMoves(Piece side) {
+		countMoves(side, _features);
+		return _features[MOBILITY_CAPTURE] + _features[MOBILITY_EDGE]
+				+ _features[MOBILITY_QUIET];
+	}
+
+	/**
+	 * Set COUNTS[MOBILITY_CAPTURE], COUNTS[MOBILITY_EDGE], and
+	 * COUNTS[MOBILITY_QUIET] to the numbers of captures, other moves to edge
+	 * squares, and all other moves that SIDE would have if it were to move
+	 * (indices as in EvalWeights).
+	 */
+	private void countMoves(Piece side, int[] counts) {
+		long own = pieces(side), opp = pieces(side.opposite());
+		int captures = 0, edges = 0, quiet = 0;
+		for (long m = own; m != 0; m &= m - 1) {
+			int from = Long.numberOfTrailingZeros(m);
+			int[] lines = LINES[from];
+			int[][] dests = DESTS[from];
+			for (int i = 0; i < 4; i++) {
+				int steps = _lineCounts[lines[i]];
+				for (int dir = i; dir < 8; dir += 4) {
+					int to = dests[dir][steps];
+					if (to < 0 || (own & (1L << to)) != 0
+							|| (BETWEEN[from][to] & opp) != 0) {
+						continue;
+					}
+					if ((opp & (1L << to)) != 0) {
+						captures += 1;
+					} else if ((EDGES & (1L << to)) != 0) {
+						edges += 1;
+					} else {
+						quiet += 1;
+					}
+				}
+			}
+		}
+		counts[MOBILITY_CAPTURE] = captures;
+		counts[MOBILITY_EDGE] = edges;
+		counts[MOBILITY_QUIET] = quiet;
+	}
+
+	/** Return true iff the side to move has a legal move. */
+	private boolean canMove() {
+		long own = pieces(_turn), opp = pieces(_turn.opposite());
+		for (long m = own; m != 0; m &= m - 1) {
+			int from = Long.numberOfTrailingZeros(m);
+			int[] lines = LINES[from];
+			int[][] dests = DESTS[from];
+			for (int i = 0; i < 4; i++) {
+				int steps = _lineCounts[lines[i]];
+				for (int dir = i; dir < 8; dir += 4) {
+					int to = dests[dir][steps];
+					if (to >= 0 && (own & (1L << to)) == 0
+							&& (BETWEEN[from][to] & opp) == 0) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * As for canMove(), but for the position in which the side to move has
+	 * the pieces OWN and its opponent the pieces OPP, rather than for this
+	 * Board.
+	 */
+	static boolean canMove(long own, long opp) {
+		long occupied = own | opp;
+		for (long m = own; m != 0; m &= m - 1) {
+			int from = Long.numberOfTrailingZeros(m);
+			int[] lines = LINES[from];
+			int[][] dests = DESTS[from];
+			for (int i = 0; i < 4; i++) {
+				int steps = Long.bitCount(LINE_MASKS[lines[i]] & occupied);
+				for (int dir = i; dir < 8; dir += 4) {
+					int to = dests[dir][steps];
+					if (to >= 0 && (own & (1L << to)) == 0
+							&& (BETWEEN[from][to] & opp) == 0) {
+						return true;
+					}
+				}
+			}
 		}
-		return arrayList;
+		return false;
 	}
 
 	/**
 	 * Return true iff the game is over (either player has all his pieces
-	 * continuous or there is a tie).
+	 * continuous, the side to move cannot move, or there is a tie).
 	 */
 	boolean gameOver() {
 		return winner() != null;
@@ -259,18 +498,21 @@ class Board {
 
 	/** Return true iff SIDE's pieces are continguous. */
 	boolean piecesContiguous(Piece side) {
-		return getRegionSizes(side).size() == 1;
+		long pieces = pieces(side);
+		return pieces != 0 && eulerNumber(side) <= 1
+				&& cluster(pieces & -pieces, pieces) == pieces;
 	}
 
 	/**
 	 * Return the winning side, if any. If the game is not over, result is null.
-	 * If the game has ended in a tie, returns EMP.
+	 * If the game has ended in a tie, returns EMP. A side that has no legal
+	 * move when it is its turn loses (unless the move limit has been reached).
 	 */
 	Piece winner() {
 		if (_winnerKnown) {
 			return _winner;
 		}
-		computeRegions();
+		_winner = null;
 		if (piecesContiguous(_turn.opposite())) {
 			_winner = _turn.opposite();
 			_winnerKnown = true;
@@ -280,6 +522,9 @@ class Board {
 		} else if (_turn == BP && movesMade() >= _moveLimit * 2) {
 			_winner = EMP;
 			_winnerKnown = true;
+		} else if (!canMove()) {
+			_winner = _turn.opposite();
+			_winnerKnown = true;
 		}
 
 		return _winner;
@@ -297,12 +542,31 @@ class Board {
 	@Override
 	public boolean equals(Object obj) {
 		Board b = (Board) obj;
-		return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+		return _black == b._black && _white == b._white && _turn == b._turn;
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+		return Long.hashCode(_key);
+	}
+
+	/**
+	 * Return the Zobrist key of this position, covering the contents of all
+	 * squares and the side to move. Equal positions have equal keys.
+	 */
+	long key() {
+		return _key;
+	}
+
+	/** Recompute _key from scratch. */
+	private void computeKey() {
+		_key = _turn == WP ? ZOBRIST_WHITE_TO_MOVE : 0L;
+		for (long m = _black; m != 0; m &= m - 1) {
+			_key ^= ZOBRIST[BP.ordinal()][Long.numberOfTrailingZeros(m)];
+		}
+		for (long m = _white; m != 0; m &= m - 1) {
+			_key ^= ZOBRIST[WP.ordinal()][Long.numberOfTrailingZeros(m)];
+		}
 	}
 
 	@Override
@@ -325,130 +589,158 @@ class Board {
 	 * by a friendly piece on the target square.
 	 */
 	private boolean blocked(Square from, Square to) {
-		if (get(from) != _turn) {
-			return true;
-		}
-		if (get(to) == _turn) {
+		long own = pieces(_turn);
+		if ((own & bit(from)) == 0 || (own & bit(to)) != 0) {
 			return true;
 		}
-		int steps = moveSteps(from, to);
-		int dir = from.direction(to);
-		for (int i = 1; i < steps; i++) {
-			if (get(from.moveDest(dir, i)) == _turn.opposite()) {
-				return true;
-			}
+		return (BETWEEN[from.index()][to.index()]
+				& pieces(_turn.opposite())) != 0;
+	}
+
+	/**
+	 * Return the squares of PIECES that are connected to SEED, a nonempty
+	 * subset of PIECES, through chains of adjacent squares of PIECES.
+	 */
+	static long cluster(long seed, long pieces) {
+		long result = seed, previous;
+		do {
+			previous = result;
+			result = (result | neighbors(result)) & pieces;
+		} while (result != previous);
+		return result;
+	}
+
+	/** Return true iff PIECES is nonempty and forms a single cluster. */
+	static boolean contiguous(long pieces) {
+		return pieces != 0 && cluster(pieces & -pieces, pieces) == pieces;
+	}
+
+	/** Return the squares in or adjacent (including diagonally) to SQUARES. */
+	static long neighbors(long squares) {
+		long row = squares | (squares << 1 & ~FILE_A)
+				| (squares >>> 1 & ~FILE_H);
+		return row | row << BOARD_SIZE | row >>> BOARD_SIZE;
+	}
+
+	/** Return the bitboard of all pieces of color P (0 for EMP). */
+	long pieces(Piece p) {
+		if (p == BP) {
+			return _black;
+		} else if (p == WP) {
+			return _white;
 		}
-		return false; // FALSE
+		return 0L;
+	}
+
+	/** Return the bitboard whose only set bit is that of SQ. */
+	static long bit(Square sq) {
+		return 1L << sq.index();
+	}
+
+	/** Return true iff the square with index INDEX is on an edge. */
+	static boolean onEdge(int index) {
+		return (EDGES & (1L << index)) != 0;
 	}
 
 	/**
-	 * Return the size of the as-yet unvisited cluster of squares containing P
-	 * at and adjacent to SQ. VISITED indicates squares that have already been
-	 * processed or are in different clusters. Update VISITED to reflect squares
-	 * counted.
+	 * Return the steps, from SQ in DIR direction: the number of pieces on the
+	 * whole line through SQ in that direction.
 	 */
-	private int numContig(Square sq, boolean[][] visited, Piece p,
-			ArrayList<Square> aList) {
-		visited[sq.col()][sq.row()] = true;
-		Square[] adjacentSquares = sq.adjacent();
-		HashSet<Integer> pieceSet = getPieces(p);
-		aList.add(sq);
-		int result = 1;
-		for (Square s : adjacentSquares) {
-			if (!visited[s.col()][s.row()] && pieceSet.contains(s.index())
-					&& _board[s.index()] == p) {
-				result += numContig(s, visited, p, aList);
-			}
+	int moveSteps(Square sq, int dir) {
+		return _lineCounts[LINES[sq.index()][dir % 4]];
+	}
+
+	/** Add DELTA to the counts of all four lines through square IDX. */
+	private void addToLines(int idx, int delta) {
+		int[] lines = LINES[idx];
+		_lineCounts[lines[0]] += delta;
+		_lineCounts[lines[1]] += delta;
+		_lineCounts[lines[2]] += delta;
+		_lineCounts[lines[3]] += delta;
+	}
+
+	/** Recompute _lineCounts from the occupancy bitboards. */
+	private void countLines() {
+		Arrays.fill(_lineCounts, 0);
+		for (long m = _black | _white; m != 0; m &= m - 1) {
+			addToLines(Long.numberOfTrailingZeros(m), 1);
 		}
-		return result; 
 	}
 
-	/** Set the values of _whiteRegionSizes and _blackRegionSizes. */
-	private void computeRegions() {
-		if (_subsetsInitialized) {
-			return;
+	/**
+	 * Add DELTA times the column, row, and squared distance from the corner
+	 * of square IDX to the running sums of the pieces of the color with
+	 * ordinal SIDE.
+	 */
+	private void addToSums(int side, int idx, int delta) {
+		int c = idx % BOARD_SIZE, r = idx / BOARD_SIZE;
+		_colSums[side] += delta * c;
+		_rowSums[side] += delta * r;
+		_squareSums[side] += delta * (c * c + r * r);
+	}
+
+	/** Recompute the running coordinate sums from the bitboards. */
+	private void computeSums() {
+		Arrays.fill(_colSums, 0);
+		Arrays.fill(_rowSums, 0);
+		Arrays.fill(_squareSums, 0);
+		for (long m = _black; m != 0; m &= m - 1) {
+			addToSums(BP.ordinal(), Long.numberOfTrailingZeros(m), 1);
 		}
-		_whiteRegionSizes.clear();
-		_blackRegionSizes.clear();
-		_blackClusters.clear();
-		_whiteClusters.clear();
-		boolean[][] visited = new boolean[BOARD_SIZE][BOARD_SIZE];
-		for (Integer I : _blackPieces) {
-			int idx = I.intValue();
-			int col = idx % BOARD_SIZE;
-			int row = idx / BOARD_SIZE;
-			if (visited[col][row]) {
-				continue;
-			}
-			ArrayList<Square> arrayList = new ArrayList<>();
-			_blackRegionSizes
-					.add(numContig(sq(col, row), visited, BP, arrayList));
-			_blackClusters.add(arrayList);
-		}
-		for (Integer I : _whitePieces) {
-			int idx = I.intValue();
-			int col = idx % BOARD_SIZE;
-			int row = idx / BOARD_SIZE;
-			if (visited[col][row]) {
-				continue;
-			}
-			ArrayList<Square> arrayList = new ArrayList<>();
-			_whiteRegionSizes
-					.add(numContig(sq(col, row), visited, WP, arrayList));
-			_whiteClusters.add(arrayList);
+		for (long m = _white; m != 0; m &= m - 1) {
+			addToSums(WP.ordinal(), Long.numberOfTrailingZeros(m), 1);
 		}
-
-		Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-		Collections.sort(_blackRegionSizes, Collections.reverseOrder());
-		Collections.sort(_whiteClusters, new Comparator<ArrayList<Square>>() {
-			public int compare(ArrayList<Square> a, ArrayList<Square> b) {
-				return b.size() - a.size();
-			}
-		});
-		Collections.sort(_blackClusters, new Comparator<ArrayList<Square>>() {
-			public int compare(ArrayList<Square> a, ArrayList<Square> b) {
-				return b.size() - a.size();
-			}
-		});
-		_subsetsInitialized = true;
 	}
 
 	/**
-	 * Return the sizes of all the regions in the current union-find structure
-	 * for side S.
+	 * Update the quad counts of the color with ordinal SIDE for a change of
+	 * its pieces from BEFORE to AFTER, which differ at most on square IDX.
 	 */
-	List<Integer> getRegionSizes(Piece s) {
-		computeRegions();
-		if (s == WP) {
-			return _whiteRegionSizes;
-		} else {
-			return _blackRegionSizes;
+	private void updateQuads(int side, long before, long after, int idx) {
+		int[] counts = _quadCounts[side];
+		for (int q : SQUARE_QUADS[idx]) {
+			counts[quadType(before, q)] -= 1;
+			counts[quadType(after, q)] += 1;
 		}
 	}
 
-	/** Return the HashSet of all pieces, by color */
-	HashSet<Integer> getPieces(Piece p) {
-		if (p == BP) {
-			return _blackPieces;
-		} else if (p == WP) {
-			return _whitePieces;
+	/** Recompute the quad counts of both colors from the bitboards. */
+	private void computeQuads() {
+		for (int side = 0; side < _quadCounts.length; side++) {
+			Arrays.fill(_quadCounts[side], 0);
+			long pieces = side == BP.ordinal() ? _black : _white;
+			for (int q = 0; q < NUM_QUADS; q++) {
+				_quadCounts[side][quadType(pieces, q)] += 1;
+			}
 		}
-		return null;
 	}
 
-	/** Return the steps, from SQ in DIR direction */
-	int moveSteps(Square sq, int dir) {
-		int result = get(sq) == EMP ? 0 : 1;
-		for (Square s = sq.moveDest(dir, 1); s != null; s = s.moveDest(dir,
-				1)) {
-			result += get(s) == EMP ? 0 : 1;
-		}
-		dir = (dir + 4) % BOARD_SIZE;
-		for (Square s = sq.moveDest(dir, 1); s != null; s = s.moveDest(dir,
-				1)) {
-			result += get(s) == EMP ? 0 : 1;
+	/** Return the type of quad Q as occupied by PIECES. */
+	private static int quadType(long pieces, int q) {
+		long p = pieces & QUAD_MASKS[q];
+		switch (Long.bitCount(p)) {
+		case 1:
+			return QUAD_ONE;
+		case 3:
+			return QUAD_THREE;
+		case 2:
+			return p == QUAD_DIAGONALS[q][0] || p == QUAD_DIAGONALS[q][1]
+					? QUAD_DIAGONAL : QUAD_OTHER;
+		default:
+			return QUAD_OTHER;
 		}
-		return result;
+	}
+
+	/**
+	 * Return the Euler number of the pieces of color PIECE: the number of
+	 * its (8-connected) clusters less the number of holes they enclose. It
+	 * is computed in constant time from quad counts, and is at most 1 when
+	 * the pieces are contiguous.
+	 */
+	int eulerNumber(Piece piece) {
+		int[] counts = _quadCounts[piece.ordinal()];
+		return (counts[QUAD_ONE] - counts[QUAD_THREE]
+				- 2 * counts[QUAD_DIAGONAL]) / 4;
 	}
 
 	/** Return the steps, from FROM to TO */
@@ -456,73 +748,71 @@ class Board {
 		return moveSteps(from, from.direction(to));
 	}
 
-	/** Return the steps, by Move M */
-	int moveSteps(Move m) {
-		return moveSteps(m.getFrom(), m.getTo());
+	/**
+	 * Return the center of mass of the (nonempty set of) pieces of color
+	 * PIECE, rounded down to a square.
+	 */
+	Square centreSquare(Piece piece) {
+		int n = Long.bitCount(pieces(piece));
+		return sq(_colSums[piece.ordinal()] / n,
+				_rowSums[piece.ordinal()] / n);
 	}
 
-	/** Return the center of piece */
-	Square centreSquare(Piece piece) {
-		int c = 0, r = 0;
-		HashSet<Integer> aSet = getPieces(piece);
-		for (Integer integer : aSet) {
-			Square s = squareByIndex(integer.intValue());
-			c += s.col();
-			r += s.row();
+	/**
+	 * Return the concentration of the pieces of color PIECE: the sum of the
+	 * squared distances of the pieces from their center of mass, rounded
+	 * down. Smaller is more concentrated.
+	 */
+	int concentration(Piece piece) {
+		int n = Long.bitCount(pieces(piece));
+		if (n == 0) {
+			return 0;
 		}
-		return sq(c / aSet.size(), r / aSet.size());
+		int side = piece.ordinal();
+		int c = _colSums[side], r = _rowSums[side];
+		return (n * _squareSums[side] - c * c - r * r) / n;
 	}
 
-	/** Return the value of the position, by color PIECE */
+	/**
+	 * Store in FEATURES the terms of the value of the position for color
+	 * PIECE, indexed as in EvalWeights: the concentration of its pieces, the
+	 * number of its groups beyond the first as estimated by the Euler
+	 * number, and the numbers of its moves that capture, that go to the edge,
+	 * and others.
+	 */
+	void features(Piece piece, int[] features) {
+		features[CONCENTRATION] = concentration(piece);
+		features[GROUPS] = Math.max(eulerNumber(piece) - 1, 0);
+		countMoves(piece, features);
+	}
+
+	/**
+	 * Return the value of the position for color PIECE: 0 if its pieces are
+	 * contiguous, and otherwise the value of its features under
+	 * getWeights() (see EvalWeights.value), which is at least 1. Smaller is
+	 * better for PIECE.
+	 */
 	int value(Piece piece) {
-		computeRegions();
-		ArrayList<ArrayList<Square>> dList = getClusters(piece);
-		if (dList.size() < 2) {
+		if (piecesContiguous(piece)) {
 			return 0;
 		}
-		ArrayList<Square> centreList = new ArrayList<>();
-		for (ArrayList<Square> arrayList : dList) {
-			centreList.add(clusterCentre(arrayList));
-		}
-		Square centreSquare = centreSquare(piece);
-		int distance = 0;
-		for (int i = 0; i < centreList.size(); i++) {
-			distance += (distancePower(centreSquare, centreList.get(i))
-					* dList.get(i).size());
-		}
-		return distance + 1;
-	}
-
-	/** Return the variance of the distance power of BP and WP */
-	int valueBPMinusWP() {
-		return value(BP) - value(WP);
+		features(piece, _features);
+		return _weights.value(_features, 0);
 	}
 
-	/** Return the distance power according to CENTRE and SQUARE */
-	int distancePower(Square centre, Square square) {
-		int colDiff = centre.col() - square.col();
-		int rowDiff = centre.row() - square.row();
-		return colDiff * colDiff + rowDiff * rowDiff;
+	/** Return the weights used by value(). */
+	static EvalWeights getWeights() {
+		return _weights;
 	}
 
-	/** Return the list of clusters of PIECE, every continuous pieces is a sub list */
-	ArrayList<ArrayList<Square>> getClusters(Piece piece) {
-		computeRegions();
-		ArrayList<ArrayList<Square>> dList = new ArrayList<>();
-		dList.addAll(piece == BP ? _blackClusters : _whiteClusters);
-		return dList;
+	/** Make value() use WEIGHTS from now on. */
+	static void setWeights(EvalWeights weights) {
+		_weights = weights;
 	}
 
-	/** Return the center square of the ARRAYLIST of squares */
-	Square clusterCentre(ArrayList<Square> arrayList) {
-		int c = 0, r = 0;
-		for (Square square : arrayList) {
-			c += square.col();
-			r += square.row();
-		}
-		c = c / arrayList.size();
-		r = r / arrayList.size();
-		return sq(c, r);
+	/** Return value(BP) - value(WP). */
+	int valueBPMinusWP() {
+		return value(BP) - value(WP);
 	}
 
 	/**
@@ -539,8 +829,183 @@ class Board {
 			{ WP, EMP, EMP, EMP, EMP, EMP, EMP, WP },
 			{ EMP, BP, BP, BP, BP, BP, BP, EMP } };
 
-	/** Current contents of the board. Square S is at _board[S.index()]. */
-	private final Piece[] _board = new Piece[BOARD_SIZE * BOARD_SIZE];
+	/**
+	 * BETWEEN[F][T] has the bits of the squares strictly between the squares
+	 * with indices F and T set, when they share a line, and is 0 otherwise.
+	 */
+	private static final long[][] BETWEEN = new long[NUM_SQUARES][NUM_SQUARES];
+
+	static {
+		for (Square from : ALL_SQUARES) {
+			for (int dir = 0; dir < 8; dir++) {
+				long between = 0L;
+				for (Square to = from.moveDest(dir, 1); to != null;
+						to = to.moveDest(dir, 1)) {
+					BETWEEN[from.index()][to.index()] = between;
+					between |= bit(to);
+				}
+			}
+		}
+	}
+
+	/** Number of distinct lines (files, ranks, diagonals, anti-diagonals). */
+	private static final int NUM_LINES =
+			2 * BOARD_SIZE + 2 * (2 * BOARD_SIZE - 1);
+
+	/**
+	 * LINES[S][D] is the index in _lineCounts of the line through the square
+	 * with index S in direction D (or D + 4): files, then diagonals, then
+	 * ranks, then anti-diagonals, in the order of the directions of
+	 * Square.moveDest.
+	 */
+	private static final int[][] LINES = new int[NUM_SQUARES][4];
+
+	static {
+		for (Square s : ALL_SQUARES) {
+			int c = s.col(), r = s.row();
+			LINES[s.index()][0] = c;
+			LINES[s.index()][1] = BOARD_SIZE + c - r + BOARD_SIZE - 1;
+			LINES[s.index()][2] = 3 * BOARD_SIZE - 1 + r;
+			LINES[s.index()][3] = 4 * BOARD_SIZE - 1 + c + r;
+		}
+	}
+
+	/** LINE_MASKS[L] has the bits of the squares on line L (as in LINES). */
+	private static final long[] LINE_MASKS = new long[NUM_LINES];
+
+	static {
+		for (Square s : ALL_SQUARES) {
+			for (int line : LINES[s.index()]) {
+				LINE_MASKS[line] |= bit(s);
+			}
+		}
+	}
+
+	/** The weights of the features in value(). */
+	private static volatile EvalWeights _weights = new EvalWeights();
+
+	/**
+	 * Number of quads: the 2x2 blocks of squares, counting those that hang
+	 * over the edges of the board, in a 9x9 grid. Quad (C, R) has index
+	 * R * (BOARD_SIZE + 1) + C and covers the squares in columns C - 1 and C
+	 * and rows R - 1 and R.
+	 */
+	private static final int NUM_QUADS = (BOARD_SIZE + 1) * (BOARD_SIZE + 1);
+
+	/**
+	 * Types of quads, by the pieces of one color in them: exactly one, exactly
+	 * three, exactly two on a diagonal, or any other arrangement.
+	 */
+	private static final int QUAD_OTHER = 0, QUAD_ONE = 1, QUAD_THREE = 2,
+			QUAD_DIAGONAL = 3, QUAD_TYPES = 4;
+
+	/** QUAD_MASKS[Q] has the bits of the squares of quad Q on the board. */
+	private static final long[] QUAD_MASKS = new long[NUM_QUADS];
+	/**
+	 * QUAD_DIAGONALS[Q] are the two diagonal pairs of squares of quad Q, or
+	 * pairs that no set of squares can equal when a pair is not on the board.
+	 */
+	private static final long[][] QUAD_DIAGONALS = new long[NUM_QUADS][2];
+	/** SQUARE_QUADS[S] are the indices of the four quads with square S. */
+	private static final int[][] SQUARE_QUADS = new int[NUM_SQUARES][4];
+
+	static {
+		int width = BOARD_SIZE + 1;
+		for (int q = 0; q < NUM_QUADS; q++) {
+			int qc = q % width, qr = q / width;
+			long[] corners = new long[4];
+			for (int k = 0; k < 4; k++) {
+				int c = qc - 1 + k % 2, r = qr - 1 + k / 2;
+				if (c >= 0 && c < BOARD_SIZE && r >= 0 && r < BOARD_SIZE) {
+					corners[k] = bit(sq(c, r));
+				}
+				QUAD_MASKS[q] |= corners[k];
+			}
+			QUAD_DIAGONALS[q][0] = corners[0] != 0 && corners[3] != 0
+					? corners[0] | corners[3] : -1L;
+			QUAD_DIAGONALS[q][1] = corners[1] != 0 && corners[2] != 0
+					? corners[1] | corners[2] : -1L;
+		}
+		for (Square s : ALL_SQUARES) {
+			for (int k = 0; k < 4; k++) {
+				SQUARE_QUADS[s.index()][k] =
+						(s.row() + k / 2) * width + s.col() + k % 2;
+			}
+		}
+	}
+
+	/** The squares of the leftmost (a) and rightmost (h) files. */
+	private static final long FILE_A = 0x0101010101010101L,
+			FILE_H = FILE_A << (BOARD_SIZE - 1);
+	/** The squares on the edges of the board. */
+	private static final long EDGES = FILE_A | FILE_H | 0xffL
+			| 0xffL << (NUM_SQUARES - BOARD_SIZE);
+
+	/**
+	 * DESTS[S][D][K] is the index of the square K steps in direction D from
+	 * the square with index S, or -1 if there is none.
+	 */
+	private static final int[][][] DESTS =
+			new int[NUM_SQUARES][8][BOARD_SIZE + 1];
+
+	static {
+		for (Square s : ALL_SQUARES) {
+			for (int dir = 0; dir < 8; dir++) {
+				for (int k = 0; k <= BOARD_SIZE; k++) {
+					Square to = s.moveDest(dir, k);
+					DESTS[s.index()][dir][k] = to == null ? -1 : to.index();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Zobrist keys: ZOBRIST[P.ordinal()][S] for a piece P on the square with
+	 * index S, and ZOBRIST_WHITE_TO_MOVE for white on move. Generated from a
+	 * fixed seed, so keys are the same from run to run.
+	 */
+	private static final long[][] ZOBRIST = new long[2][NUM_SQUARES];
+	/** See ZOBRIST. */
+	private static final long ZOBRIST_WHITE_TO_MOVE;
+
+	static {
+		Random random = new Random(0x4c6f41L);
+		for (long[] keys : ZOBRIST) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = random.nextLong();
+			}
+		}
+		ZOBRIST_WHITE_TO_MOVE = random.nextLong();
+	}
+
+	/**
+	 * Current contents of the board, as one occupancy bitboard per color.
+	 * Square S is occupied by black iff bit S.index() of _black is set.
+	 */
+	private long _black, _white;
+
+	/** Zobrist key of the current position; see key(). */
+	private long _key;
+
+	/** Number of pieces of either color on each line, indexed as in LINES. */
+	private final int[] _lineCounts = new int[NUM_LINES];
+
+	/**
+	 * Sums of the columns, rows, and squared distances from the corner
+	 * (col * col + row * row) of the pieces of each color, indexed by
+	 * Piece ordinal.
+	 */
+	private final int[] _colSums = new int[2], _rowSums = new int[2],
+			_squareSums = new int[2];
+
+	/**
+	 * Number of quads of each type for each color, indexed by Piece ordinal
+	 * and quad type.
+	 */
+	private final int[][] _quadCounts = new int[2][QUAD_TYPES];
+
+	/** Buffer for the features computed by value(). */
+	private final int[] _features = new int[NUM_WEIGHTS];
 
 	/** List of all unretracted moves on this board, in order. */
 	private final ArrayList<Move> _moves = new ArrayList<>();
@@ -556,17 +1021,4 @@ class Board {
 	 */
 	private Piece _winner;
 
-	/** True iff subsets computation is up-to-date. */
-	private boolean _subsetsInitialized;
-
-	/** List of the sizes of continguous clusters of pieces, by color. */
-	private final ArrayList<Integer> _whiteRegionSizes = new ArrayList<>(),
-			_blackRegionSizes = new ArrayList<>();
-
-	/** BitSets of all pieces, by color */
-	private final HashSet<Integer> _blackPieces = new HashSet<>(),
-			_whitePieces = new HashSet<>();
-	private final ArrayList<ArrayList<Square>> _blackClusters = new ArrayList<>(),
-			_whiteClusters = new ArrayList<>();
-
 }
@@ -2,6 +2,8 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -62,6 +64,21 @@ public class BoardTest {
     };
 
 
+    /**
+     * A position, with the game not over, in which black is close to
+     * joining up and white is scattered.
+     */
+    static final Piece[][] BOARD5 = {
+        { WP,  EMP, EMP, EMP, EMP, EMP, EMP,  WP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP,  BP,  BP,  BP, EMP, EMP, EMP },
+        { EMP, EMP,  BP, EMP,  BP, EMP, EMP, EMP },
+        { EMP, EMP,  BP,  BP, EMP, EMP,  BP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { WP,  EMP, EMP,  WP, EMP, EMP, EMP,  WP }
+    };
+
     static final String BOARD1_STRING =
         "===\n"
         + "    - b b b - b b - \n"
@@ -118,6 +135,20 @@ public class BoardTest {
         assertTrue("Board 4 game over", b4.gameOver());
     }
 
+    /** Test a side that cannot move. */
+    @Test
+    public void testNoMoves1() {
+        Board b = endgame("a1 h8", "b1 a2 b4 g7 g8 h7", WP, 10);
+        assertFalse("black can move", b.gameOver());
+        b.makeMove(mv("b4-b2"));
+        assertTrue("black cannot move", b.legalMoves().isEmpty());
+        assertFalse("black not contiguous", b.piecesContiguous(BP));
+        assertFalse("white not contiguous", b.piecesContiguous(WP));
+        assertEquals("side that cannot move loses", WP, b.winner());
+        b.retract();
+        assertNull("game resumed", b.winner());
+    }
+
     @Test
     public void testEquals1() {
         Board b1 = new Board(BOARD1, BP);
@@ -141,4 +172,117 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+    @Test
+    public void testCapture1() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        b1.makeMove(mv("e3-a3"));
+        assertEquals("square a3 after e3-a3", BP, b1.get(sq(0, 2)));
+        assertTrue("e3-a3 recorded as capture", b1.lastMove().isCapture());
+        assertEquals("white piece count after capture",
+                     Long.bitCount(b0.pieces(WP)) - 1,
+                     Long.bitCount(b1.pieces(WP)));
+        b1.retract();
+        assertEquals("Check board 1 restored after capture", b0, b1);
+        assertEquals("square a3 restored", WP, b1.get(sq(0, 2)));
+    }
+
+    @Test
+    public void testKey1() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        assertEquals("equal boards have equal keys", b0.key(), b1.key());
+        b1.makeMove(mv("f3-d5"));
+        assertNotEquals("key changes after a move", b0.key(), b1.key());
+        b1.retract();
+        assertEquals("key restored after retraction", b0.key(), b1.key());
+        b1.set(sq(0, 2), EMP, WP);
+        Board b2 = new Board(b1);
+        b2.set(sq(0, 2), WP, BP);
+        assertEquals("key restored after set", b0.key(), b2.key());
+        assertNotEquals("side to move is part of the key",
+                        new Board(BOARD1, BP).key(),
+                        new Board(BOARD1, WP).key());
+    }
+
+    @Test
+    public void testConcentration1() {
+        Board b = new Board();
+        assertEquals("initial black centre", sq(3, 3), b.centreSquare(BP));
+        assertEquals("initial black concentration", 182,
+                     b.concentration(BP));
+        b.makeMove(mv("b1-b3"));
+        Board b1 = new Board();
+        b1.set(sq(1, 0), EMP);
+        b1.set(sq(1, 2), BP, WP);
+        assertEquals("concentration after move", b1.concentration(BP),
+                     b.concentration(BP));
+        b.retract();
+        assertEquals("concentration restored", 182, b.concentration(BP));
+    }
+
+    @Test
+    public void testEuler1() {
+        Board b = new Board();
+        assertEquals("initial black groups", 2, b.eulerNumber(BP));
+        assertEquals("initial white groups", 2, b.eulerNumber(WP));
+        b.makeMove(mv("b1-b3"));
+        assertEquals("detached piece is a group", 3, b.eulerNumber(BP));
+        b.retract();
+        assertEquals("groups restored", 2, b.eulerNumber(BP));
+        for (int c = 2; c <= 4; c++) {
+            for (int r = 2; r <= 4; r++) {
+                b.set(sq(c, r), c == 3 && r == 3 ? EMP : BP);
+            }
+        }
+        assertEquals("ring with a hole cancels its group", 2,
+                     b.eulerNumber(BP));
+    }
+
+    @Test
+    public void testValue1() {
+        Board b = endgame("d4 e4 d6", "h1 a8", BP, 10);
+        assertEquals("mobile but unconnected side is above 0", 1,
+                     b.value(BP));
+        b = endgame("d4 e4 d5", "h1 a8", BP, 10);
+        assertEquals("connected side is 0", 0, b.value(BP));
+    }
+
+    @Test
+    public void testPerft1() {
+        Perft perft = new Perft(new Board());
+        assertEquals("perft 1 from initial position", 36, perft.count(1));
+        assertEquals("perft 2 from initial position", 1244, perft.count(2));
+        assertEquals("perft 3 from initial position", 44952, perft.count(3));
+        Board b = new Board(BOARD1, BP);
+        assertEquals("perft 1 agrees with legalMoves",
+                     b.legalMoves().size(), new Perft(b).count(1));
+        assertEquals("countMoves agrees with legalMoves",
+                     b.legalMoves().size(), b.countMoves(BP));
+        assertEquals("countMoves for the side not to move", 36,
+                     new Board().countMoves(WP));
+        assertEquals("parallel perft 4 with hash", 1563208,
+                     new Perft(new Board(), 4, 1).count(4));
+    }
+
+    /** Return a board with black pieces on the squares named in BLACK and
+     *  white pieces on those in WHITE (separated by blanks), TURN to move,
+     *  and LIMIT moves per side before a tie. */
+    static Board endgame(String black, String white, Piece turn,
+                         int limit) {
+        Piece[][] empty = new Piece[8][8];
+        for (Piece[] row : empty) {
+            Arrays.fill(row, EMP);
+        }
+        Board b = new Board(empty, turn);
+        for (String s : black.split(" ")) {
+            b.set(sq(s), BP);
+        }
+        for (String s : white.split(" ")) {
+            b.set(sq(s), WP);
+        }
+        b.setMoveLimit(limit);
+        return b;
+    }
+
 }
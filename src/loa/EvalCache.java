@@ -0,0 +1,82 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A direct-mapped cache of static values (Board.valueBPMinusWP()), indexed
+ * by Board.key(). Each entry is a single long holding the high half of the
+ * key above the value. Entries are read and written with opaque accesses,
+ * which (unlike plain accesses to a long) are never torn, so the cache may
+ * be shared by several searching threads without locking.
+ *
+ * @author ChengXu
+ */
+class EvalCache {
+
+	/** Default size of the cache in megabytes. */
+	static final int DEFAULT_SIZE_MB = 4;
+
+	/** Result of probe for a key with no entry. */
+	static final int NO_VALUE = Integer.MIN_VALUE;
+
+	/** A cache using about MEGABYTES (> 0) megabytes. */
+	EvalCache(int megabytes) {
+		_megabytes = megabytes;
+		long entries = Math.max(1, ((long) megabytes << 20) / Long.BYTES);
+		int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+		_mask = size - 1;
+		_entries = new AtomicLongArray(size);
+	}
+
+	/** Return the size I was created with, in megabytes. */
+	int megabytes() {
+		return _megabytes;
+	}
+
+	/** Remove all entries. */
+	void clear() {
+		for (int i = 0; i < _entries.length(); i++) {
+			_entries.setOpaque(i, 0L);
+		}
+	}
+
+	/** Return the static value of BOARD, computing it only on a miss. */
+	int value(Board board) {
+		long key = board.key();
+		int value = probe(key);
+		if (value == NO_VALUE) {
+			value = board.valueBPMinusWP();
+			store(key, value);
+		}
+		return value;
+	}
+
+	/** Return the value stored for KEY, or NO_VALUE if there is none. */
+	int probe(long key) {
+		long entry = _entries.getOpaque((int) key & _mask);
+		if (entry != 0 && ((entry ^ key) & KEY_MASK) == 0) {
+			return (int) entry;
+		}
+		return NO_VALUE;
+	}
+
+	/** Store VALUE as the value for KEY, replacing any other entry. */
+	void store(long key, int value) {
+		_entries.setOpaque((int) key & _mask,
+				(key & KEY_MASK) | (value & VALUE_MASK));
+	}
+
+	/** Masks selecting the key and value parts of an entry. */
+	private static final long KEY_MASK = 0xffffffff00000000L,
+			VALUE_MASK = 0xffffffffL;
+
+	/** Size in megabytes requested at construction. */
+	private final int _megabytes;
+	/** Mask selecting an entry index from a key. */
+	private final int _mask;
+	/** The entries (0 for an empty entry). */
+	private final AtomicLongArray _entries;
+
+}
@@ -0,0 +1,44 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the EvalCache class.
+ *  @author
+ */
+public class EvalCacheTest {
+
+    @Test
+    public void testStore1() {
+        EvalCache cache = new EvalCache(1);
+        long k1 = 0x1234_5678_0000_0042L, k2 = 0x7654_3210_0000_0042L;
+        assertEquals("empty", EvalCache.NO_VALUE, cache.probe(k1));
+        cache.store(k1, -17);
+        assertEquals("hit", -17, cache.probe(k1));
+        assertEquals("colliding key rejected", EvalCache.NO_VALUE,
+                     cache.probe(k2));
+        cache.store(k2, 5);
+        assertEquals("colliding key replaces", 5, cache.probe(k2));
+        assertEquals("replaced key misses", EvalCache.NO_VALUE,
+                     cache.probe(k1));
+        cache.clear();
+        assertEquals("cleared", EvalCache.NO_VALUE, cache.probe(k2));
+    }
+
+    @Test
+    public void testValue1() {
+        EvalCache cache = new EvalCache(1);
+        Board b = new Board(BoardTest.BOARD1, BP);
+        assertEquals("miss computes the value", b.valueBPMinusWP(),
+                     cache.value(b));
+        assertEquals("value stored", b.valueBPMinusWP(),
+                     cache.probe(b.key()));
+        cache.store(b.key(), 12345);
+        assertEquals("hit returns the stored value", 12345, cache.value(b));
+    }
+
+}
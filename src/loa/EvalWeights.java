@@ -0,0 +1,123 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * The weights of the terms of Board.value. The value of a side whose pieces
+ * are not contiguous is one more than the sum of each weight times the
+ * corresponding feature (see Board.features), divided by SCALE, but at
+ * least 1 (see value). Weights
+ * are read from and written to text files with one "NAME VALUE" line per
+ * weight; lines starting with # are comments.
+ *
+ * @author ChengXu
+ */
+class EvalWeights {
+
+	/** Indices of the weights and of the features they multiply. */
+	static final int CONCENTRATION = 0, GROUPS = 1, MOBILITY_CAPTURE = 2,
+			MOBILITY_EDGE = 3, MOBILITY_QUIET = 4;
+
+	/** Number of weights. */
+	static final int NUM_WEIGHTS = 5;
+
+	/** Names of the weights, in index order. */
+	static final String[] NAMES = { "concentration", "groups",
+		"mobility-capture", "mobility-edge", "mobility-quiet" };
+
+	/** Divisor of the weighted sum of features. */
+	static final int SCALE = 4;
+
+	/** Default weights, in index order. */
+	private static final int[] DEFAULTS = { 4, 32, -8, -2, -4 };
+
+	/** The default weights. */
+	EvalWeights() {
+		this(DEFAULTS);
+	}
+
+	/** The weights VALUES, in index order. */
+	EvalWeights(int[] values) {
+		if (values.length != NUM_WEIGHTS) {
+			throw new IllegalArgumentException("wrong number of weights");
+		}
+		_values = values.clone();
+	}
+
+	/** Return weight number I. */
+	int get(int i) {
+		return _values[i];
+	}
+
+	/**
+	 * Return the value of a side whose pieces are not contiguous and whose
+	 * features are FEATURES[FROM .. FROM + NUM_WEIGHTS - 1]: one more than
+	 * their weighted sum divided by SCALE, but at least 1, so that the
+	 * negative mobility weights never give it the value 0 of a connected
+	 * side.
+	 */
+	int value(int[] features, int from) {
+		int sum = 0;
+		for (int i = 0; i < NUM_WEIGHTS; i++) {
+			sum += _values[i] * features[from + i];
+		}
+		return Math.max(1, sum / SCALE + 1);
+	}
+
+	/** Return all the weights, in index order. */
+	int[] toArray() {
+		return _values.clone();
+	}
+
+	/**
+	 * Return the weights in the file named NAME. Weights not mentioned in
+	 * the file have their default values.
+	 */
+	static EvalWeights read(String name) throws IOException {
+		int[] values = DEFAULTS.clone();
+		try (BufferedReader in = new BufferedReader(new FileReader(name))) {
+			for (String line = in.readLine(); line != null;
+					line = in.readLine()) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] words = line.split("\\s+");
+				int i = Arrays.asList(NAMES).indexOf(words[0]);
+				if (words.length != 2 || i < 0) {
+					throw new IOException("bad weight line: " + line);
+				}
+				try {
+					values[i] = Integer.parseInt(words[1]);
+				} catch (NumberFormatException excp) {
+					throw new IOException("bad weight value: " + line);
+				}
+			}
+		}
+		return new EvalWeights(values);
+	}
+
+	/** Write my weights to OUT, in the format read by read. */
+	void write(PrintStream out) {
+		out.print(this);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < NUM_WEIGHTS; i++) {
+			out.append(String.format("%s %d%n", NAMES[i], _values[i]));
+		}
+		return out.toString();
+	}
+
+	/** The weights, in index order. */
+	private final int[] _values;
+
+}
@@ -26,6 +26,15 @@ class Game {
 	static final String HELP_FILE = "loa/HelpText.txt";
 	/** Default depth */
 	static final int DEFAULT_DEPTH = 0;
+	/** Default number of playouts per move of Monte Carlo players. */
+	static final int DEFAULT_PLAYOUTS = 20000;
+	/**
+	 * Default node budget of the proof search made by automated players
+	 * (none).
+	 */
+	static final int DEFAULT_SOLVER_NODES = 0;
+	/** Default node budget of the prove command. */
+	static final long DEFAULT_PROVE_NODES = 1000000;
 
 	/**
 	 * Controller for one or more games of LOA, using MANUALPLAYERTEMPLATE as an
@@ -51,6 +60,11 @@ class Game {
 		_reporter = reporter;
 		_strict = strict;
 		_depth = DEFAULT_DEPTH;
+		_hashSize = TranspositionTable.DEFAULT_SIZE_MB;
+		_threads = 1;
+		_evalCacheSize = EvalCache.DEFAULT_SIZE_MB;
+		_playouts = DEFAULT_PLAYOUTS;
+		_solverNodes = DEFAULT_SOLVER_NODES;
 	}
 
 	/** Return the current board. */
@@ -119,7 +133,8 @@ class Game {
 				manualCommand(command.group(2).toLowerCase());
 				break;
 			case "auto":
-				autoCommand(command.group(2).toLowerCase());
+				autoCommand(command.group(2).toLowerCase(),
+						command.group(3).toLowerCase());
 				break;
 			case "quit":
 				quit();
@@ -133,6 +148,33 @@ class Game {
 			case "limit":
 				setLimitCommand(command.group(2));
 				break;
+			case "hash":
+				setHashSizeCommand(command.group(2));
+				break;
+			case "evalcache":
+				setEvalCacheSizeCommand(command.group(2));
+				break;
+			case "time":
+				setTimeLimitCommand(command.group(2));
+				break;
+			case "threads":
+				setThreadsCommand(command.group(2));
+				break;
+			case "playouts":
+				setPlayoutsCommand(command.group(2));
+				break;
+			case "solver":
+				setSolverNodesCommand(command.group(2));
+				break;
+			case "prove":
+				proveCommand(command.group(2));
+				break;
+			case "param":
+				paramCommand(command.group(2).toLowerCase(), command.group(3));
+				break;
+			case "perft":
+				perftCommand(command.group(2), command.group(3).toLowerCase());
+				break;
 			case "set":
 				setCommand(command.group(2), command.group(3).toLowerCase(),
 						command.group(4).toLowerCase());
@@ -190,14 +232,37 @@ class Game {
 		}
 	}
 
-	/** Set player PLAYER ("white" or "black") to be an automated player. */
-	private void autoCommand(String player) {
+	/**
+	 * Set player PLAYER ("white" or "black") to be an automated player using
+	 * ENGINE: "alphabeta" for a MachinePlayer, "mcts" for an MCTSPlayer,
+	 * "rootmcts" for a root-parallel MCTSPlayer, or empty for the default
+	 * automated player.
+	 */
+	private void autoCommand(String player, String engine) {
+		Player template;
+		switch (engine) {
+		case "":
+			template = _autoPlayerTemplate;
+			break;
+		case "alphabeta":
+			template = new MachinePlayer();
+			break;
+		case "mcts":
+			template = new MCTSPlayer(false);
+			break;
+		case "rootmcts":
+			template = new MCTSPlayer(true);
+			break;
+		default:
+			error("unknown engine: %s%n", engine);
+			return;
+		}
 		switch (player) {
 		case "white":
-			_white = _autoPlayerTemplate.create(WP, this);
+			_white = template.create(WP, this);
 			break;
 		case "black":
-			_black = _autoPlayerTemplate.create(BP, this);
+			_black = template.create(BP, this);
 			break;
 		default:
 			error("unknown player: %s%n", player);
@@ -237,6 +302,268 @@ class Game {
 		return _depth;
 	}
 
+	/**
+	 * Set the size of automated players' transposition tables to SIZE MB,
+	 * which must be from 1 to TranspositionTable.MAX_SIZE_MB.
+	 */
+	private void setHashSizeCommand(String size) {
+		try {
+			int megabytes = Integer.parseInt(size);
+			if (megabytes <= 0
+					|| megabytes > TranspositionTable.MAX_SIZE_MB) {
+				error("Invalid hash size: %s%n", size);
+			} else {
+				setHashSize(megabytes);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", size);
+		}
+	}
+
+	void setHashSize(int megabytes) {
+		_hashSize = megabytes;
+	}
+
+	/** Return the size of transposition tables, in megabytes. */
+	int getHashSize() {
+		return _hashSize;
+	}
+
+	/**
+	 * Set the size of automated players' evaluation caches to SIZE MB (0 for
+	 * none).
+	 */
+	private void setEvalCacheSizeCommand(String size) {
+		try {
+			int megabytes = Integer.parseInt(size);
+			if (megabytes < 0) {
+				error("Invalid evaluation cache size: %s%n", size);
+			} else {
+				setEvalCacheSize(megabytes);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", size);
+		}
+	}
+
+	void setEvalCacheSize(int megabytes) {
+		_evalCacheSize = megabytes;
+	}
+
+	/** Return the size of evaluation caches in megabytes (0 for none). */
+	int getEvalCacheSize() {
+		return _evalCacheSize;
+	}
+
+	/** Set the time allowed for each automated move to MILLIS ms. */
+	private void setTimeLimitCommand(String millis) {
+		try {
+			int limit = Integer.parseInt(millis);
+			if (limit < 0) {
+				error("Invalid time limit: %s%n", millis);
+			} else {
+				setTimeLimit(limit);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", millis);
+		}
+	}
+
+	void setTimeLimit(int millis) {
+		_timeLimit = millis;
+	}
+
+	/**
+	 * Return the time allowed for each automated move in milliseconds, or 0
+	 * if there is no limit.
+	 */
+	int getTimeLimit() {
+		return _timeLimit;
+	}
+
+	/** Set the number of search threads used by automated players to N. */
+	private void setThreadsCommand(String n) {
+		try {
+			int threads = Integer.parseInt(n);
+			if (threads <= 0) {
+				error("Invalid number of threads: %s%n", n);
+			} else {
+				setThreads(threads);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", n);
+		}
+	}
+
+	void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	/** Return the number of search threads used by automated players. */
+	int getThreads() {
+		return _threads;
+	}
+
+	/** Set the number of playouts per move of Monte Carlo players to N. */
+	private void setPlayoutsCommand(String n) {
+		try {
+			int playouts = Integer.parseInt(n);
+			if (playouts <= 0) {
+				error("Invalid number of playouts: %s%n", n);
+			} else {
+				setPlayouts(playouts);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", n);
+		}
+	}
+
+	void setPlayouts(int playouts) {
+		_playouts = playouts;
+	}
+
+	/**
+	 * Return the number of playouts per move of Monte Carlo players when
+	 * there is no time limit.
+	 */
+	int getPlayouts() {
+		return _playouts;
+	}
+
+	/**
+	 * Set the node budget of the proof searches made by automated players
+	 * to N (0 for none).
+	 */
+	private void setSolverNodesCommand(String n) {
+		try {
+			int nodes = Integer.parseInt(n);
+			if (nodes < 0) {
+				error("Invalid number of nodes: %s%n", n);
+			} else {
+				setSolverNodes(nodes);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", n);
+		}
+	}
+
+	void setSolverNodes(int nodes) {
+		_solverNodes = nodes;
+	}
+
+	/**
+	 * Return the node budget of the proof searches made by automated
+	 * players, or 0 if they make none.
+	 */
+	int getSolverNodes() {
+		return _solverNodes;
+	}
+
+	/** Use the endgame tables TABLEBASE (none if null) in automated players. */
+	void setTablebase(Tablebase tablebase) {
+		_tablebase = tablebase;
+	}
+
+	/** Return the endgame tables used by automated players, or null. */
+	Tablebase getTablebase() {
+		return _tablebase;
+	}
+
+	/**
+	 * Try to prove or disprove a forced win for the side to move, searching
+	 * about NODES positions at most (by default, DEFAULT_PROVE_NODES) with
+	 * getThreads() threads, and print the result.
+	 */
+	private void proveCommand(String nodes) {
+		long maxNodes;
+		try {
+			maxNodes = nodes.isEmpty() ? DEFAULT_PROVE_NODES
+					: Long.parseLong(nodes);
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", nodes);
+			return;
+		}
+		if (maxNodes <= 0) {
+			error("Invalid number of nodes: %s%n", nodes);
+			return;
+		}
+		if (_board.gameOver()) {
+			error("game is over%n");
+			return;
+		}
+		ProofSearch search = new ProofSearch(new Board(_board),
+				new ProofTable(getHashSize()), getThreads());
+		long start = System.nanoTime();
+		int result = search.solve(maxNodes);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		String side = _board.turn() == BP ? "Black" : "White";
+		switch (result) {
+		case ProofSearch.PROVED:
+			System.out.printf("%s wins with %s", side, search.winningMove());
+			break;
+		case ProofSearch.DISPROVED:
+			System.out.printf("%s cannot force a win", side);
+			break;
+		default:
+			System.out.printf("Unknown");
+			break;
+		}
+		System.out.printf(" (%d nodes in %.3f s)%n", search.nodes(), seconds);
+	}
+
+	/**
+	 * Set the search parameter NAME to VALUE, or print all search parameters
+	 * if NAME is empty.
+	 */
+	private void paramCommand(String name, String value) {
+		if (name.isEmpty()) {
+			System.out.print(_searchParameters);
+			return;
+		}
+		try {
+			_searchParameters.set(name, Integer.parseInt(value));
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", value);
+		} catch (IllegalArgumentException e) {
+			error("%s%n", e.getMessage());
+		}
+	}
+
+	/** Return the parameters of automated players' searches. */
+	SearchParameters getSearchParameters() {
+		return _searchParameters;
+	}
+
+	/**
+	 * Print the number of leaves of the legal-move tree of depth DEPTH from
+	 * the current position, and the nodes per second counted, using
+	 * getThreads() threads. If MODE is "divide", first print the count below
+	 * each legal move.
+	 */
+	private void perftCommand(String depth, String mode) {
+		if (!mode.isEmpty() && !mode.equals("divide")) {
+			error("unknown perft mode: %s%n", mode);
+			return;
+		}
+		try {
+			int n = Integer.parseInt(depth);
+			if (n < 0 || n > Perft.MAX_DEPTH) {
+				error("Invalid perft depth: %s%n", depth);
+				return;
+			}
+			Perft perft = new Perft(_board, getThreads(), 0);
+			if (mode.isEmpty()) {
+				long start = System.nanoTime();
+				long nodes = perft.count(n);
+				Perft.report(n, nodes, System.nanoTime() - start, System.out);
+			} else {
+				perft.divide(n, System.out);
+			}
+		} catch (NumberFormatException e) {
+			error("Invalid number: %s%n", depth);
+		}
+	}
+
 	/**
 	 * Set square S to CONTENT ('black', 'white', or '-'), and next player to
 	 * move to NEXTPLAYER: 'black' or 'white'.
@@ -331,7 +658,7 @@ class Game {
 			_reporter.reportNote("Black wins.");
 			break;
 		case WP:
-			_reporter.reportNote("White wins");
+			_reporter.reportNote("White wins.");
 			break;
 		default:
 			_reporter.reportNote("Tie game.");
@@ -397,4 +724,20 @@ class Game {
 	private boolean _strict;
 	/** The search depths */
 	private int _depth;
+	/** Size of transposition tables, in megabytes. */
+	private int _hashSize;
+	/** Size of evaluation caches, in megabytes (0 for none). */
+	private int _evalCacheSize;
+	/** Time allowed for each automated move in ms (0 for no limit). */
+	private int _timeLimit;
+	/** Number of search threads used by automated players. */
+	private int _threads;
+	/** Number of playouts per move of Monte Carlo players. */
+	private int _playouts;
+	/** Node budget of automated players' proof searches (0 for none). */
+	private int _solverNodes;
+	/** Endgame tables used by automated players, or null. */
+	private Tablebase _tablebase;
+	/** Tunable parameters of automated players' searches. */
+	private final SearchParameters _searchParameters = new SearchParameters();
 }
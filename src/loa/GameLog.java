@@ -0,0 +1,63 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the games recorded in a log file, as written by the --log option of
+ * Main. A game starts with the initial position or a "new" command, and
+ * "limit" commands set its move limit. Games that do not finish, contain
+ * illegal moves, or are set up with "set" are skipped. Other commands are
+ * ignored.
+ *
+ * @author ChengXu
+ */
+class GameLog {
+
+	/**
+	 * Return the final positions of the finished games in the log file named
+	 * NAME, in order. Each position's move history is that of its game, so
+	 * the earlier positions can be recovered with Board.retract.
+	 */
+	static List<Board> read(String name) throws IOException {
+		List<Board> games = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(name))) {
+			Board board = new Board();
+			boolean valid = true;
+			for (String line = in.readLine(); line != null;
+					line = in.readLine()) {
+				String[] words = line.trim().toLowerCase().split("\\s+");
+				Move move = Move.mv(words[0]);
+				if (words[0].equals("new")) {
+					board = new Board();
+					valid = true;
+				} else if (words[0].equals("set")) {
+					valid = false;
+				} else if (words[0].equals("limit") && words.length > 1) {
+					try {
+						board.setMoveLimit(Integer.parseInt(words[1]));
+					} catch (NumberFormatException excp) {
+						valid = false;
+					}
+				} else if (move != null && valid && !board.gameOver()) {
+					if (!board.isLegal(move)) {
+						valid = false;
+					} else {
+						board.makeMove(move);
+						if (board.gameOver()) {
+							games.add(board);
+							board = new Board(board);
+						}
+					}
+				}
+			}
+		}
+		return games;
+	}
+
+}
@@ -0,0 +1,49 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+
+/** Tests of the GameLog class.
+ *  @author
+ */
+public class GameLogTest {
+
+    @Test
+    public void testRead1() throws IOException {
+        Path log = Files.createTempFile("loa", ".log");
+        try {
+            Files.write(log, List.of(
+                "limit 1", "b1-b3", "a2-c2",
+                "new", "b1-b3", "b1-b3", "h2-f2",
+                "new", "set a1 b", "limit 1", "b1-b3", "a2-c2",
+                "new", "limit 1", "seed 3", "C1-C3", "h2-f2",
+                "new", "d1-d3"));
+            List<Board> games = GameLog.read(log.toString());
+            assertEquals("finished, legal, unset games", 2, games.size());
+            Board game = games.get(1);
+            assertTrue("game finished", game.gameOver());
+            assertEquals("tied at the move limit", EMP, game.winner());
+            assertEquals("moves replayed", 2, game.movesMade());
+            game.retract();
+            game.retract();
+            Board start = new Board();
+            start.makeMove(mv("c1-c3"));
+            game.makeMove(mv("c1-c3"));
+            assertEquals("history recovered", start.toString(),
+                         game.toString());
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+}
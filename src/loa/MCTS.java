@@ -0,0 +1,414 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/**
+ * A Monte Carlo tree search (UCT) for the best move from a position. Each
+ * iteration descends the tree by the UCT rule, expands the leaf it reaches,
+ * plays a random game (a playout) from there, and adds the result to the
+ * nodes along the path.
+ *
+ * The tree is kept in parallel arrays indexed by node number rather than as
+ * node objects: node 0 is the root, and the children of a node occupy a
+ * contiguous range of numbers. A node's value is the total of the results
+ * of the playouts through it, counted for the side that made the move
+ * leading to it (1 for a win, 1/2 for a tie, 0 for a loss), in units of
+ * 1/RESULT_SCALE.
+ *
+ * Several threads may search one tree at once (tree parallelization). The
+ * counts of nodes and children and the visits and values are atomic, and
+ * a node is expanded by whichever thread first claims it. A thread counts
+ * its visit to each node on its way down, before its playout has a result,
+ * so that until the result arrives the visit counts as a loss (a "virtual
+ * loss") and steers other threads to other nodes.
+ *
+ * Playouts choose moves at random, but favor captures and avoid moves to
+ * the edge, as in the playout policies for LOA in the literature. A playout
+ * that has not ended after PLAYOUT_PLIES moves is scored by the static
+ * value of its final position.
+ *
+ * @author ChengXu
+ */
+class MCTS {
+
+	/** Weight of the exploration term of the UCT rule. */
+	static final double UCT_CONSTANT = 0.6;
+	/** Longest playout before the static value is used. */
+	static final int PLAYOUT_PLIES = 40;
+	/**
+	 * Change in static value (positive being good for white) that divides
+	 * the estimated odds of a black win by e; see estimate.
+	 */
+	static final double VALUE_SCALE = 40.0;
+	/** Relative chances of a capture, a move to the edge, and other moves. */
+	static final int CAPTURE_WEIGHT = 8, EDGE_WEIGHT = 1, QUIET_WEIGHT = 3;
+	/** Units in which values hold the result of one playout. */
+	static final int RESULT_SCALE = 1 << 12;
+	/** Number of bytes used per node. */
+	static final int NODE_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
+	/** A search whose tree uses about MEGABYTES (> 0) megabytes. */
+	MCTS(int megabytes) {
+		_megabytes = megabytes;
+		int capacity = (int) Math.min(((long) megabytes << 20) / NODE_BYTES,
+				Integer.MAX_VALUE);
+		capacity = Math.max(capacity, Board.MAX_MOVES + 1);
+		_moves = new int[capacity];
+		_children = new int[capacity];
+		_numChildren = new AtomicIntegerArray(capacity);
+		_visits = new AtomicIntegerArray(capacity);
+		_values = new AtomicLongArray(capacity);
+	}
+
+	/** Return the size I was created with, in megabytes. */
+	int megabytes() {
+		return _megabytes;
+	}
+
+	/**
+	 * Return the best move from POSITION found by MAXPLAYOUTS playouts (no
+	 * limit if 0), stopping early at time DEADLINE (in milliseconds), using
+	 * THREADS threads on one tree, with random choices seeded by SEED.
+	 * Assumes the game is not over.
+	 */
+	Move search(Board position, int maxPlayouts, long deadline, int threads,
+			long seed) {
+		assert !position.gameOver();
+		_maxPlayouts = maxPlayouts;
+		_deadline = deadline;
+		_stopped = false;
+		_started.set(0);
+		_playouts.set(0);
+		_numNodes.set(1);
+		_moves[0] = 0;
+		_numChildren.set(0, 0);
+		_visits.set(0, 0);
+		_values.set(0, 0L);
+
+		Random seeds = new Random(seed);
+		Worker[] workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(position, seeds.nextLong());
+		}
+		workers[0].expand(0);
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 1; i < threads; i++) {
+			helpers[i - 1] = new Thread(workers[i]);
+			helpers[i - 1].setDaemon(true);
+			helpers[i - 1].start();
+		}
+		workers[0].run();
+		for (Thread helper : helpers) {
+			try {
+				helper.join();
+			} catch (InterruptedException excp) {
+				throw new Error("unexpected interrupt");
+			}
+		}
+		return Move.mv(_moves[mostVisited(0)]);
+	}
+
+	/**
+	 * Return the estimated chance of a black win from the position on BOARD,
+	 * found from its static value, which is positive when white is better.
+	 */
+	static double estimate(Board board) {
+		return 1.0 / (1.0 + Math.exp(board.valueBPMinusWP() / VALUE_SCALE));
+	}
+
+	/** Return the number of playouts made by the last search. */
+	int playouts() {
+		return _playouts.get();
+	}
+
+	/** Return the number of nodes in the tree of the last search. */
+	int nodes() {
+		return Math.min(_numNodes.get(), _moves.length);
+	}
+
+	/** Return the estimated chance that the move of the last search wins. */
+	double winRate() {
+		int best = mostVisited(0);
+		int visits = _visits.get(best);
+		return visits == 0 ? 0.5
+				: (double) _values.get(best) / RESULT_SCALE / visits;
+	}
+
+	/**
+	 * Add the visits of each move from the root in the last search to
+	 * VISITS, indexed by Move.index().
+	 */
+	void addRootVisits(int[] visits) {
+		int first = _children[0], end = first + _numChildren.get(0);
+		for (int child = first; child < end; child++) {
+			visits[Move.index(_moves[child])] += _visits.get(child);
+		}
+	}
+
+	/** Return the most visited child of NODE, which is expanded. */
+	private int mostVisited(int node) {
+		int first = _children[node], end = first + _numChildren.get(node);
+		int best = first;
+		for (int child = first + 1; child < end; child++) {
+			if (_visits.get(child) > _visits.get(best)) {
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Claim a playout of the current search and return true, or return false
+	 * if the search should start no more playouts.
+	 */
+	private boolean claimPlayout() {
+		if (_stopped) {
+			return false;
+		}
+		int n = _started.getAndIncrement();
+		if (_maxPlayouts > 0 && n >= _maxPlayouts
+				|| (n & CLOCK_CHECK_MASK) == 0
+						&& System.currentTimeMillis() >= _deadline) {
+			_stopped = true;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * One thread of a search, with its own copy of the position and its own
+	 * source of random choices.
+	 */
+	private class Worker implements Runnable {
+
+		/**
+		 * A worker searching from POSITION, with random choices seeded by
+		 * SEED.
+		 */
+		Worker(Board position, long seed) {
+			_board = new Board(position);
+			_random = new Random(seed);
+		}
+
+		@Override
+		public void run() {
+			while (claimPlayout()) {
+				iterate();
+				_playouts.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Descend from the root to a leaf, expand it, play out from it, and
+		 * record the result on the path back to the root.
+		 */
+		private void iterate() {
+			int depth = 0;
+			int node = 0;
+			_visits.incrementAndGet(0);
+			_path[0] = 0;
+			while (_numChildren.get(node) > 0 && !_board.gameOver()) {
+				node = select(node);
+				depth = descend(node, depth);
+			}
+			if (!_board.gameOver() && _visits.get(node) > 1
+					&& expand(node)) {
+				node = select(node);
+				depth = descend(node, depth);
+			}
+			long blackResult = Math.round(playout() * RESULT_SCALE);
+			for (; depth > 0; depth -= 1) {
+				node = _path[depth];
+				_board.retract();
+				_values.addAndGet(node, _board.turn() == BP
+						? blackResult : RESULT_SCALE - blackResult);
+			}
+		}
+
+		/**
+		 * Make the move leading to NODE, which is a child of the node at
+		 * DEPTH on _path, count a visit to NODE, and add it to _path. Return
+		 * the new depth.
+		 */
+		private int descend(int node, int depth) {
+			_board.makeMove(Move.mv(_moves[node]));
+			_visits.incrementAndGet(node);
+			depth += 1;
+			if (depth == _path.length) {
+				_path = Arrays.copyOf(_path, 2 * depth);
+			}
+			_path[depth] = node;
+			return depth;
+		}
+
+		/**
+		 * Return the child of NODE, which is expanded, with the highest UCT
+		 * value.
+		 */
+		private int select(int node) {
+			int first = _children[node];
+			int end = first + _numChildren.get(node);
+			double logVisits = Math.log(Math.max(1, _visits.get(node)));
+			int best = first;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int child = first; child < end; child++) {
+				int visits = _visits.get(child);
+				if (visits == 0) {
+					return child;
+				}
+				double value = (double) _values.get(child) / RESULT_SCALE
+						/ visits + UCT_CONSTANT * Math.sqrt(logVisits / visits);
+				if (value > bestValue) {
+					best = child;
+					bestValue = value;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Add children for all legal moves from _board to NODE, in random
+		 * order, unless another thread has claimed NODE or there is no room
+		 * for them. Return true iff the children were added.
+		 */
+		private boolean expand(int node) {
+			if (!_numChildren.compareAndSet(node, 0, NO_CHILDREN)) {
+				return false;
+			}
+			int numMoves = _board.generateMoves(_moveBuffer, 0);
+			if (numMoves == 0 || _numNodes.get() + numMoves > _moves.length) {
+				return false;
+			}
+			int first = _numNodes.getAndAdd(numMoves);
+			if (first + numMoves > _moves.length) {
+				return false;
+			}
+			for (int i = 0; i < numMoves; i++) {
+				int j = _random.nextInt(i + 1);
+				_moves[first + i] = _moves[first + j];
+				_moves[first + j] = _moveBuffer[i];
+			}
+			for (int child = first; child < first + numMoves; child++) {
+				_numChildren.set(child, 0);
+				_visits.set(child, 0);
+				_values.set(child, 0L);
+			}
+			_children[node] = first;
+			_numChildren.set(node, numMoves);
+			return true;
+		}
+
+		/**
+		 * Play random moves from _board until the game ends or PLAYOUT_PLIES
+		 * moves have been made, and then restore _board. Return the result
+		 * for black: 1 for a win, 1/2 for a tie, 0 for a loss, or, if the
+		 * game has not ended, an estimate from the static value of the last
+		 * position.
+		 */
+		private double playout() {
+			int plies;
+			for (plies = 0; plies < PLAYOUT_PLIES && !_board.gameOver();
+					plies++) {
+				_board.makeMove(Move.mv(randomMove()));
+			}
+			double result;
+			Piece winner = _board.winner();
+			if (winner == BP) {
+				result = 1.0;
+			} else if (winner == WP) {
+				result = 0.0;
+			} else if (winner == EMP) {
+				result = 0.5;
+			} else {
+				result = estimate(_board);
+			}
+			for (; plies > 0; plies -= 1) {
+				_board.retract();
+			}
+			return result;
+		}
+
+		/**
+		 * Return the code of a legal move from _board, chosen at random with
+		 * chances in proportion to CAPTURE_WEIGHT, EDGE_WEIGHT, and
+		 * QUIET_WEIGHT.
+		 */
+		private int randomMove() {
+			int numMoves = _board.generateMoves(_moveBuffer, 0);
+			int total = 0;
+			for (int i = 0; i < numMoves; i++) {
+				int code = _moveBuffer[i];
+				total += Move.isCapture(code) ? CAPTURE_WEIGHT
+						: Board.onEdge(Move.index(code) % NUM_SQUARES)
+						? EDGE_WEIGHT : QUIET_WEIGHT;
+				_weightSums[i] = total;
+			}
+			int r = _random.nextInt(total);
+			int i = 0;
+			while (_weightSums[i] <= r) {
+				i += 1;
+			}
+			return _moveBuffer[i];
+		}
+
+		/** The position searched (modified and restored while searching). */
+		private final Board _board;
+		/** Source of random choices. */
+		private final Random _random;
+		/** Nodes on the path from the root to the current node. */
+		private int[] _path = new int[INITIAL_PATH];
+		/** Buffer for generated move codes. */
+		private final int[] _moveBuffer = new int[Board.MAX_MOVES];
+		/** Running sums of the weights of the moves in _moveBuffer. */
+		private final int[] _weightSums = new int[Board.MAX_MOVES];
+	}
+
+	/**
+	 * Value of _numChildren for a node that is being expanded or cannot be
+	 * expanded.
+	 */
+	private static final int NO_CHILDREN = -1;
+	/** Mask of the playout counts at which the clock is checked. */
+	private static final int CLOCK_CHECK_MASK = 0xff;
+	/** Initial size of a worker's path. */
+	private static final int INITIAL_PATH = 2 * Board.DEFAULT_MOVE_LIMIT + 1;
+
+	/** Size in megabytes requested at construction. */
+	private final int _megabytes;
+	/** Code of the move leading to each node. */
+	private final int[] _moves;
+	/** Number of the first child of each node. */
+	private final int[] _children;
+	/**
+	 * Number of children of each node: 0 if not expanded, NO_CHILDREN if
+	 * being expanded or out of room. Set only after the children are
+	 * complete, which publishes them to other threads.
+	 */
+	private final AtomicIntegerArray _numChildren;
+	/** Number of visits to each node, including playouts in progress. */
+	private final AtomicIntegerArray _visits;
+	/** Total result of the finished playouts through each node. */
+	private final AtomicLongArray _values;
+	/** Number of nodes allocated (may exceed the capacity when full). */
+	private final AtomicInteger _numNodes = new AtomicInteger();
+	/** Number of playouts claimed by the current search. */
+	private final AtomicInteger _started = new AtomicInteger();
+	/** Number of playouts finished by the current search. */
+	private final AtomicInteger _playouts = new AtomicInteger();
+	/** Limit on playouts of the current search (none if 0). */
+	private int _maxPlayouts;
+	/** Time at which the current search stops, in milliseconds. */
+	private long _deadline;
+	/** True when the current search should start no more playouts. */
+	private volatile boolean _stopped;
+
+}
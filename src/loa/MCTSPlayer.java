@@ -0,0 +1,143 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Random;
+
+import static loa.Square.*;
+
+/**
+ * An automated Player that chooses its moves by Monte Carlo tree search
+ * (see MCTS), as an alternative to the alpha-beta search of MachinePlayer.
+ * Each move is searched for the game's time limit if there is one, and
+ * otherwise for the game's number of playouts. The tree is sized by the
+ * game's hash size.
+ *
+ * With more than one thread, the threads either share one tree (see MCTS)
+ * or, for a root-parallel player, each search a tree of their own, after
+ * which the visits of the moves from the root are summed over all trees.
+ *
+ * @author ChengXu
+ */
+class MCTSPlayer extends Player {
+
+	/**
+	 * A new MCTSPlayer with no piece or controller (intended to produce a
+	 * template), which is root-parallel iff ROOTPARALLEL.
+	 */
+	MCTSPlayer(boolean rootParallel) {
+		this(null, null, rootParallel);
+	}
+
+	/**
+	 * An MCTSPlayer that plays the SIDE pieces in GAME, and is root-parallel
+	 * iff ROOTPARALLEL.
+	 */
+	MCTSPlayer(Piece side, Game game, boolean rootParallel) {
+		super(side, game);
+		_rootParallel = rootParallel;
+	}
+
+	@Override
+	String getMove() {
+		assert side() == getGame().getBoard().turn();
+		Move choice = searchForMove();
+		getGame().reportMove(choice);
+		return choice.toString();
+	}
+
+	@Override
+	Player create(Piece piece, Game game) {
+		return new MCTSPlayer(piece, game, _rootParallel);
+	}
+
+	@Override
+	boolean isManual() {
+		return false;
+	}
+
+	/**
+	 * Return the move chosen by a Monte Carlo tree search from the current
+	 * position. The random choices of the search are seeded from the game's
+	 * random source, so that games with the same seed repeat. Assumes the
+	 * game is not over.
+	 */
+	private Move searchForMove() {
+		Board work = getBoard();
+		int threads = getGame().getThreads();
+		int numTrees = _rootParallel ? threads : 1;
+		int megabytes = Math.max(1, getGame().getHashSize() / numTrees);
+		if (_searches.length != numTrees
+				|| _searches[0].megabytes() != megabytes) {
+			_searches = new MCTS[numTrees];
+			for (int i = 0; i < numTrees; i++) {
+				_searches[i] = new MCTS(megabytes);
+			}
+		}
+		int timeLimit = getGame().getTimeLimit();
+		long deadline = timeLimit > 0
+				? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		int playouts = timeLimit > 0 ? 0
+				: (getGame().getPlayouts() + numTrees - 1) / numTrees;
+		Random seeds = new Random(getGame().randInt(Integer.MAX_VALUE));
+
+		if (numTrees == 1) {
+			Move best = _searches[0].search(work, playouts, deadline,
+					threads, seeds.nextLong());
+			Utils.debug(1, "MCTS move:%s playouts:%d nodes:%d win rate:%.3f",
+					best, _searches[0].playouts(), _searches[0].nodes(),
+					_searches[0].winRate());
+			return best;
+		}
+
+		Thread[] helpers = new Thread[numTrees];
+		for (int i = 0; i < numTrees; i++) {
+			MCTS search = _searches[i];
+			long seed = seeds.nextLong();
+			helpers[i] = new Thread(() ->
+					search.search(work, playouts, deadline, 1, seed));
+			helpers[i].setDaemon(true);
+			helpers[i].start();
+		}
+		int[] visits = new int[NUM_SQUARES * NUM_SQUARES];
+		int total = 0;
+		for (int i = 0; i < numTrees; i++) {
+			try {
+				helpers[i].join();
+			} catch (InterruptedException excp) {
+				throw new Error("unexpected interrupt");
+			}
+			_searches[i].addRootVisits(visits);
+			total += _searches[i].playouts();
+		}
+		Move best = mostVisited(visits, work);
+		Utils.debug(1, "MCTS move:%s playouts:%d trees:%d",
+				best, total, numTrees);
+		return best;
+	}
+
+	/**
+	 * Return the move from BOARD with the most VISITS (indexed by
+	 * Move.index()), or, if no move was visited (as when the time ran out
+	 * before any playout), the first legal move, as a search of a single
+	 * tree would. Assumes the game on BOARD is not over.
+	 */
+	static Move mostVisited(int[] visits, Board board) {
+		int best = -1;
+		for (int i = 0; i < visits.length; i++) {
+			if (visits[i] > 0 && (best < 0 || visits[i] > visits[best])) {
+				best = i;
+			}
+		}
+		return best < 0 ? board.legalMoves().get(0) : Move.mv(best);
+	}
+
+	/** True iff my threads search separate trees. */
+	private final boolean _rootParallel;
+	/**
+	 * The searches, one per tree, kept between moves to reuse their trees'
+	 * storage.
+	 */
+	private MCTS[] _searches = new MCTS[0];
+
+}
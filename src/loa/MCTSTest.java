@@ -0,0 +1,63 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.BoardTest.*;
+import static loa.Piece.*;
+import static loa.Square.NUM_SQUARES;
+
+/** Tests of the MCTS class.
+ *  @author
+ */
+public class MCTSTest {
+
+    @Test
+    public void testPlayoutEstimate1() {
+        Board b = new Board(BOARD5, WP);
+        assertFalse("game not over", b.gameOver());
+        assertTrue("black is better", b.valueBPMinusWP() < 0);
+        assertTrue("estimate favours black", MCTS.estimate(b) > 0.5);
+        assertEquals("even position", 0.5, MCTS.estimate(new Board()), 1e-9);
+    }
+
+    @Test
+    public void testSearch1() {
+        for (int threads = 1; threads <= 2; threads += 1) {
+            Board b = endgame("a1 a3", "h8 h6", BP, 10);
+            MCTS search = new MCTS(1);
+            Move move = search.search(b, 2000, Long.MAX_VALUE, threads, 1);
+            assertEquals("board restored",
+                         endgame("a1 a3", "h8 h6", BP, 10).toString(),
+                         b.toString());
+            assertEquals("all playouts made", 2000, search.playouts());
+            int[] visits = new int[NUM_SQUARES * NUM_SQUARES];
+            search.addRootVisits(visits);
+            int total = 0;
+            for (int v : visits) {
+                total += v;
+            }
+            assertEquals("every playout visits the root's children",
+                         search.playouts(), total);
+            b.makeMove(move);
+            assertEquals("wins in one with " + threads + " threads", BP,
+                         b.winner());
+            assertTrue("sure of the win", search.winRate() > 0.9);
+        }
+    }
+
+    @Test
+    public void testMostVisited1() {
+        Board b = new Board();
+        int[] visits = new int[NUM_SQUARES * NUM_SQUARES];
+        assertEquals("no visits falls back to a legal move",
+                     b.legalMoves().get(0), MCTSPlayer.mostVisited(visits, b));
+        Move m = Move.mv("b1-b3");
+        visits[Move.index(m.code())] = 2;
+        visits[Move.index(Move.mv("c1-c3").code())] = 1;
+        assertEquals("most visited", m, MCTSPlayer.mostVisited(visits, b));
+    }
+
+}
@@ -3,13 +3,8 @@
 package loa;
 
 import static loa.Piece.*;
-import static loa.Square.BOARD_SIZE;
 import loa.Board;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-
 /**
  * An automated Player.
  * 
@@ -17,14 +12,6 @@ import java.util.List;
  */
 class MachinePlayer extends Player {
 
-	/**
-	 * A position-score magnitude indicating a win (for white if positive, black
-	 * if negative).
-	 */
-	private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
-	/** A magnitude greater than a normal value. */
-	private static final int INFTY = Integer.MAX_VALUE;
-
 	/**
 	 * A new MachinePlayer with no piece or controller (intended to produce a
 	 * template).
@@ -60,100 +47,164 @@ class MachinePlayer extends Player {
 	}
 
 	/**
-	 * Return a move after searching the game tree to DEPTH>0 moves from the
-	 * current position. Assumes the game is not over.
+	 * Return a move after searching the game tree from the current position by
+	 * iterative deepening: depth 1, 2, ... up to chooseDepth(), or until the
+	 * game's time limit (if any) runs out, in which case the move from the
+	 * last completed iteration is returned. With neither a depth nor a time
+	 * limit, does a single depth-1 search. Each iteration after the first
+	 * searches within an aspiration window around the previous value. When
+	 * the game asks for more than one thread, helper threads search the same
+	 * position at staggered depths (lazy SMP), sharing only the
+	 * transposition table.
+	 *
+	 * If the game has endgame tables (see Tablebase) that give the exact
+	 * result of the position within the move limit, a move that keeps it is
+	 * played without searching, and positions in the tables reached by the
+	 * search are not searched further.
+	 *
+	 * Unless the game's solver budget is 0 (the default), a proof search
+	 * first looks for a forced win, which is played at once if found, and
+	 * the move chosen by the search is then checked in the same way for a
+	 * forced loss, which is avoided if possible. Under a time limit, the
+	 * first proof search may use a quarter of it, and the checks for a
+	 * forced loss stop when it runs out. Assumes the game is not over, so
+	 * that there is a legal move.
 	 */
 	private Move searchForMove() {
-		Board work = new Board(getBoard());
-		int value;
+		Board work = getBoard();
 		assert side() == work.turn();
-		_foundMove = null;
-		if (side() == WP) {
-			value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
-		} else {
-			value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
+		if (_table == null || _table.megabytes() != getGame().getHashSize()) {
+			_table = new TranspositionTable(getGame().getHashSize());
 		}
-		return _foundMove;
-	}
-
-	/**
-	 * Find a move from position BOARD and return its value, recording the move
-	 * found in _foundMove iff SAVEMOVE. The move should have maximal value or
-	 * have value > BETA if SENSE==1, and minimal value or value < ALPHA if
-	 * SENSE==-1. Searches up to DEPTH levels. Searching at level 0 simply
-	 * returns a static estimate of the board value and does not set _foundMove.
-	 * If the game is over on BOARD, does not set _foundMove.
-	 */
-	private int findMove(Board board, int depth, boolean saveMove, int sense,
-			int alpha, int beta) {
-		int result = beta;
-		if (depth == 0) {
-			HashMap<String, Object> rHashMap = guessBestMove(board);
-			result = (int) (rHashMap.get("value"));
-			if (saveMove) {
-				_foundMove = (Move) rHashMap.get("bestMove");
-			}
-			return result;
+		Tablebase tablebase = getGame().getTablebase();
+		Move exact = tablebase == null ? null : tablebase.bestMove(work);
+		if (exact != null) {
+			Utils.debug(1, "searchForMove tablebase move: %s value:%d", exact,
+					tablebase.probe(work));
+			return exact;
 		}
-		int response = 0;
-		int bestDistance = Integer.MAX_VALUE;
-		int bestValue = board.valueBPMinusWP();
-		Square centreSquare = board.centreSquare(board.turn());
-		List<Move> moves = board.legalMoves();
-		for (Move move : moves) {
-			if (move.getFrom().distance(centreSquare) <= 2) {
-				continue;
+		long start = System.currentTimeMillis();
+		int timeLimit = getGame().getTimeLimit();
+		long deadline = timeLimit > 0 ? start + timeLimit : Long.MAX_VALUE;
+		int solverNodes = getGame().getSolverNodes();
+		if (solverNodes > 0) {
+			if (_proofTable == null
+					|| _proofTable.megabytes() != getGame().getHashSize()) {
+				_proofTable = new ProofTable(getGame().getHashSize());
 			}
-			int fromValue = board.distancePower(centreSquare, move.getFrom());
-			int toValue = board.distancePower(centreSquare, move.getTo());
-			if (fromValue == 0 || toValue >= fromValue) {
-				continue;
+			ProofSearch solver = new ProofSearch(new Board(work), _proofTable,
+					getGame().getThreads());
+			long solverDeadline = timeLimit > 0
+					? start + timeLimit / SOLVER_TIME_FRACTION : deadline;
+			if (solver.solve(solverNodes, solverDeadline)
+					== ProofSearch.PROVED) {
+				Utils.debug(1, "searchForMove proved win: %s nodes:%d",
+						solver.winningMove(), solver.nodes());
+				return solver.winningMove();
 			}
-			int afterDistance = toValue * BOARD_SIZE * BOARD_SIZE / fromValue;
-			if (afterDistance >= bestDistance) {
-				continue;
+		}
+		_table.newSearch();
+		int evalCacheSize = getGame().getEvalCacheSize();
+		if (evalCacheSize == 0) {
+			_evalCache = null;
+		} else if (_evalCache == null
+				|| _evalCache.megabytes() != evalCacheSize) {
+			_evalCache = new EvalCache(evalCacheSize);
+		}
+		Searcher.ageHistory(_history);
+		int maxDepth = chooseDepth() <= 0 && timeLimit > 0
+				? Searcher.MAX_DEPTH
+				: Math.max(1, Math.min(chooseDepth(), Searcher.MAX_DEPTH));
+
+		Searcher main = new Searcher(work, _table, _evalCache, deadline,
+				_history, getGame().getSearchParameters());
+		main.setTablebase(tablebase);
+		int numHelpers = getGame().getThreads() - 1;
+		Searcher[] helpers = new Searcher[numHelpers];
+		Thread[] threads = new Thread[numHelpers];
+		for (int i = 0; i < numHelpers; i++) {
+			Searcher helper = new Searcher(work, _table, _evalCache,
+					deadline, Searcher.newHistory(),
+					getGame().getSearchParameters());
+			helper.setTablebase(tablebase);
+			int firstDepth = 1 + (i + 1) % 2;
+			helpers[i] = helper;
+			threads[i] = new Thread(() -> helper.iterate(firstDepth, maxDepth));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		Move best = null;
+		int value = 0;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			value = depth <= 1 ? main.search(depth) : main.search(depth, value);
+			if (main.stopped()) {
+				break;
 			}
-			bestDistance = afterDistance;
-
-			board.makeMove(move);
-			response = findMove(board, depth - 1, false, -sense, alpha, beta);
-			Utils.debug(1,
-					"findMove best[%d]resp[%d]move[%s] depth:%d, sense:%d, alpha:%d, beta:%d%n",
-					bestValue, response, board.lastMove(), depth, sense, alpha,
-					beta);
-			if (sense == 1) {
-				if (response > bestValue) {
-					bestValue = response;
-					alpha = Math.max(alpha, response);
-					if (saveMove) {
-						_foundMove = board.lastMove();
-					}
-					if (alpha >= beta) {
-						board.retract();
-						break;
-					}
-				}
-			} else {
-				if (response < bestValue) {
-					bestValue = response;
-					beta = Math.min(beta, response);
-					if (saveMove) {
-						_foundMove = board.lastMove();
-					}
-					if (alpha >= beta) {
-						board.retract();
-						break;
-					}
-				}
+			best = main.foundMove();
+			Utils.debug(1, "searchForMove depth:%d value:%d move:%s nodes:%d",
+					depth, value, best, main.nodes());
+			if (timeLimit > 0
+					&& System.currentTimeMillis() - start > timeLimit / 2) {
+				break;
 			}
-			board.retract();
 		}
 
-		if (saveMove && _foundMove == null) {
-			_foundMove = moves.get(moves.size() / 2);
+		for (int i = 0; i < numHelpers; i++) {
+			helpers[i].stop();
+			try {
+				threads[i].join();
+			} catch (InterruptedException excp) {
+				throw new Error("unexpected interrupt");
+			}
+		}
+		if (best == null) {
+			best = main.foundMove() != null ? main.foundMove()
+					: work.legalMoves().get(0);
 		}
+		if (solverNodes > 0) {
+			best = avoidProvedLoss(best, solverNodes, deadline);
+		}
+		return best;
+	}
 
-		return bestValue;
+	/**
+	 * Return BEST, unless a proof search of up to NODES nodes shows that the
+	 * opponent can force a win after it, in which case return the first
+	 * legal move for which no such proof is found (or BEST if there is
+	 * none). Stops searching, and returns BEST if no other move has been
+	 * found, at time DEADLINE.
+	 */
+	private Move avoidProvedLoss(Move best, int nodes, long deadline) {
+		Board board = new Board(getBoard());
+		if (!provedLoss(board, best, nodes, deadline)) {
+			return best;
+		}
+		Utils.debug(1, "searchForMove proved loss: %s", best);
+		for (Move move : board.legalMoves()) {
+			if (System.currentTimeMillis() >= deadline) {
+				break;
+			}
+			if (move != best && !provedLoss(board, move, nodes, deadline)) {
+				return move;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return true iff a proof search of up to NODES nodes, stopped at time
+	 * DEADLINE, shows that after MOVE on BOARD, the opponent can force a
+	 * win. Leaves BOARD unchanged.
+	 */
+	private boolean provedLoss(Board board, Move move, int nodes,
+			long deadline) {
+		board.makeMove(move);
+		ProofSearch solver = new ProofSearch(board, _proofTable,
+				getGame().getThreads());
+		boolean lost = solver.solve(nodes, deadline) == ProofSearch.PROVED;
+		board.retract();
+		return lost;
 	}
 
 	/** Return a search depth for the current position. */
@@ -161,74 +212,22 @@ class MachinePlayer extends Player {
 		return getGame().getDepth();
 	}
 
-	private HashMap<String, Object> guessBestMove(Board board) {
-		HashMap<String, Object> rHashMap = new HashMap<>();
-		int bestvalue = Integer.MAX_VALUE;
-		Square centreSquare = board.centreSquare(board.turn());
-
-		Move bestMove = null;
-		int result = 0;
-		ArrayList<ArrayList<Square>> dList = board.getClusters(board.turn());
-		OUTER: for (int i = dList.size() - 1; i > 0; i--) {
-			ArrayList<Square> aList = dList.get(i);
-			for (Square square : aList) {
-				for (Move aMove : board.legalMoves(square)) {
-					if (aList.size() <= 2) {
-						board.makeMove(aMove);
-						if (board.winner() == board.turn().opposite()) {
-							bestMove = aMove;
-							board.retract();
-							break OUTER;
-						}
-						board.retract();
-					}
-					if (aMove.getFrom().distance(centreSquare) <= 2) {
-						continue;
-					}
-					int fromValue = board.distancePower(centreSquare,
-							aMove.getFrom());
-					int toValue = board.distancePower(centreSquare,
-							aMove.getTo());
-					if (fromValue == 0 || toValue >= fromValue) {
-						continue;
-					}
-					int afterValue = toValue * BOARD_SIZE * BOARD_SIZE
-							/ fromValue;
-					if (afterValue < bestvalue) {
-						bestvalue = afterValue;
-						bestMove = aMove;
-					}
-					if (board.get(aMove.getTo()) == board.turn().opposite()) {
-						bestMove = aMove;
-						break OUTER;
-					}
-
-				}
-			}
-
-		}
-		if (bestMove == null) {
-			OUTER2: for (int i = dList.size() - 1; i >= 0; i--) {
-				ArrayList<Square> aList = dList.get(i);
-				for (Square square : aList) {
-					List<Move> nextMoves = board.legalMoves(square);
-					if (nextMoves.size() > 0) {
-						bestMove = nextMoves
-								.get(getGame().randInt(nextMoves.size()));
-						break OUTER2;
-					}
-				}
-			}
-		}
-		board.makeMove(bestMove);
-		result = board.valueBPMinusWP();
-		board.retract();
-		rHashMap.put("value", result);
-		rHashMap.put("bestMove", bestMove);
-		return rHashMap;
-	}
+	/**
+	 * Fraction (as its reciprocal) of the time limit that the proof search
+	 * for a forced win may use before the main search.
+	 */
+	private static final int SOLVER_TIME_FRACTION = 4;
 
-	/** Used to convey moves discovered by findMove. */
-	private Move _foundMove;
+	/** Results of earlier searches, sized by Game.getHashSize(). */
+	private TranspositionTable _table;
+	/**
+	 * Static values of positions, sized by Game.getEvalCacheSize(), or null
+	 * if that is 0.
+	 */
+	private EvalCache _evalCache;
+	/** Proof and disproof numbers, sized by Game.getHashSize(). */
+	private ProofTable _proofTable;
+	/** History scores of moves used by the main search, kept between moves. */
+	private final int[][] _history = Searcher.newHistory();
 
 }
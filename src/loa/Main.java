@@ -3,6 +3,7 @@
 package loa;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
@@ -37,7 +38,8 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --weights={0,1} --mcts{0,1} "
+                            + "--tablebases={0,1} --=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -50,6 +52,16 @@ public class Main {
             setMessageLevel(options.getInt("--debug"));
         }
 
+        if (options.contains("--weights")) {
+            String name = options.getFirst("--weights");
+            try {
+                Board.setWeights(EvalWeights.read(name));
+            } catch (IOException excp) {
+                error(1, "Could not read weights from %s: %s%n", name,
+                      excp.getMessage());
+            }
+        }
+
         List<String> files = options.get("--");
         if (!files.isEmpty()) {
             try {
@@ -113,8 +125,21 @@ public class Main {
             }
         }
 
-        return new Game(view, log, reporter, manualPlayer,
-                        new MachinePlayer(), options.contains("--strict"));
+        Player autoPlayer =
+            options.contains("--mcts") ? new MCTSPlayer(false)
+            : new MachinePlayer();
+        Game game = new Game(view, log, reporter, manualPlayer, autoPlayer,
+                             options.contains("--strict"));
+        if (options.contains("--tablebases")) {
+            String dir = options.getFirst("--tablebases");
+            try {
+                game.setTablebase(Tablebase.load(new File(dir)));
+            } catch (IOException excp) {
+                error(1, "Could not read tablebases from %s: %s%n", dir,
+                      excp.getMessage());
+            }
+        }
+        return game;
     }
 
     /** Print brief description of the command-line format. */
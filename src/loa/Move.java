@@ -51,6 +51,31 @@ final class Move {
         return mv(from, to, false);
     }
 
+    /** Return the move whose code() is CODE, or null if there is none.
+     *  Since index() values are codes of non-capturing moves, this also
+     *  converts an index() back to its Move. */
+    static Move mv(int code) {
+        int index = code & INDEX_MASK;
+        return _moves[index / NUM_SQUARES][index % NUM_SQUARES]
+            [code >>> CAPTURE_SHIFT];
+    }
+
+    /** Return the code() of the move from the square with index FROM to
+     *  the one with index TO, capturing iff CAPTURE. */
+    static int code(int from, int to, boolean capture) {
+        return from * NUM_SQUARES + to + (capture ? 1 << CAPTURE_SHIFT : 0);
+    }
+
+    /** Return the index() of the move whose code() is CODE. */
+    static int index(int code) {
+        return code & INDEX_MASK;
+    }
+
+    /** Return true iff the move whose code() is CODE is a capture. */
+    static boolean isCapture(int code) {
+        return (code >>> CAPTURE_SHIFT) != 0;
+    }
+
     /** Return the Square moved from. */
     Square getFrom() {
         return _from;
@@ -71,6 +96,19 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return a number between 0 and NUM_SQUARES * NUM_SQUARES - 1 that
+     *  identifies my starting and destination squares (ignoring
+     *  isCapture()). */
+    int index() {
+        return _from.index() * NUM_SQUARES + _to.index();
+    }
+
+    /** Return a compact int encoding of this move: its index() plus a
+     *  flag for isCapture().  Codes of distinct Moves are distinct. */
+    int code() {
+        return code(_from.index(), _to.index(), _capture);
+    }
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
@@ -97,6 +135,10 @@ final class Move {
      *  and getTo() as this, but with isCapture() true. */
     private final Move _captureMove;
 
+    /** Layout of code(): index() in the low bits, then the capture flag. */
+    private static final int CAPTURE_SHIFT = 12,
+        INDEX_MASK = (1 << CAPTURE_SHIFT) - 1;
+
     /** The set of all possible Moves, indexed by row and column of
      *  start, row and column of destination, and whether Move denotes
      *  a capture. */
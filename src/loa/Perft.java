@@ -0,0 +1,332 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ucb.util.CommandArgs;
+
+import static loa.Utils.*;
+
+/**
+ * Counts the leaves of the tree of legal moves from a position to a fixed
+ * depth ("perft"). Used to measure the speed of Board.generateMoves,
+ * makeMove, and retract and to check them against known counts. A position
+ * in which the game is over has no moves.
+ *
+ * With more than one thread, the subtrees below the first SPLIT_PLIES
+ * moves are counted as separate tasks in a ForkJoinPool, each on its own
+ * copy of the board. An optional hash table, shared by all threads,
+ * remembers the counts of subtrees so that transposed positions are
+ * counted only once.
+ *
+ * @author ChengXu
+ */
+class Perft {
+
+	/** Deepest count allowed. */
+	static final int MAX_DEPTH = 32;
+	/** Number of plies from the root within which subtrees are split. */
+	static final int SPLIT_PLIES = 2;
+	/** Subtrees of less than this depth are never split. */
+	private static final int MIN_SPLIT_DEPTH = 3;
+
+	/** A single-threaded Perft that counts moves from a copy of BOARD. */
+	Perft(Board board) {
+		this(board, 1, 0);
+	}
+
+	/**
+	 * A Perft that counts moves from a copy of BOARD using THREADS threads
+	 * and a shared hash table of about HASHMB megabytes (none if 0).
+	 */
+	Perft(Board board, int threads, int hashMB) {
+		this(board, threads, hashMB > 0 ? new Hash(hashMB) : null);
+	}
+
+	/**
+	 * A Perft that counts moves from a copy of BOARD using THREADS threads
+	 * and HASH (if not null).
+	 */
+	private Perft(Board board, int threads, Hash hash) {
+		_board = new Board(board);
+		_threads = threads;
+		_hash = hash;
+	}
+
+	/** Return the number of leaves of the move tree of depth DEPTH. */
+	long count(int depth) {
+		checkDepth(depth);
+		if (_threads <= 1 || depth < MIN_SPLIT_DEPTH) {
+			reserve(depth);
+			return count(depth, 0);
+		}
+		ForkJoinPool pool = new ForkJoinPool(_threads);
+		try {
+			return pool.invoke(new CountTask(_board, depth, 0));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Print on OUT, for each legal move, the leaf count of the subtree of
+	 * depth DEPTH it starts, and then the total count and the speed of the
+	 * count. Return the total count.
+	 */
+	long divide(int depth, PrintStream out) {
+		checkDepth(depth);
+		long start = System.nanoTime();
+		long total;
+		if (depth == 0) {
+			total = 1;
+		} else if (_board.gameOver()) {
+			total = 0;
+		} else {
+			total = 0;
+			reserve(1);
+			int[] moves = _moveStack[0];
+			int numMoves = _board.generateMoves(moves, 0);
+			for (int i = 0; i < numMoves; i++) {
+				Move move = Move.mv(moves[i]);
+				_board.makeMove(move);
+				long n = new Perft(_board, _threads, _hash).count(depth - 1);
+				_board.retract();
+				out.printf("%s: %d%n", move, n);
+				total += n;
+			}
+		}
+		report(depth, total, System.nanoTime() - start, out);
+		return total;
+	}
+
+	/**
+	 * Print on OUT the result of a count to DEPTH that found NODES leaves in
+	 * NANOS nanoseconds.
+	 */
+	static void report(int depth, long nodes, long nanos, PrintStream out) {
+		double seconds = nanos / 1e9;
+		out.printf("perft %d: %d nodes in %.3f s (%.0f nodes/s)%n", depth,
+				nodes, seconds, seconds > 0 ? nodes / seconds : 0.0);
+	}
+
+	/**
+	 * Return the number of leaves of the move tree of depth DEPTH from
+	 * _board, which is PLY moves from the root.
+	 */
+	private long count(int depth, int ply) {
+		if (depth == 0) {
+			return 1;
+		}
+		if (_board.gameOver()) {
+			return 0;
+		}
+		int[] moves = _moveStack[ply];
+		int numMoves = _board.generateMoves(moves, 0);
+		if (depth == 1) {
+			return numMoves;
+		}
+		long key = _board.key();
+		if (_hash != null) {
+			long hashed = _hash.probe(key, depth);
+			if (hashed >= 0) {
+				return hashed;
+			}
+		}
+		long total = 0;
+		for (int i = 0; i < numMoves; i++) {
+			_board.makeMove(Move.mv(moves[i]));
+			total += count(depth - 1, ply + 1);
+			_board.retract();
+		}
+		if (_hash != null) {
+			_hash.store(key, depth, total);
+		}
+		return total;
+	}
+
+	/** Make sure that _moveStack has buffers for at least DEPTH plies. */
+	private void reserve(int depth) {
+		if (_moveStack.length < depth) {
+			_moveStack = new int[depth][Board.MAX_MOVES];
+		}
+	}
+
+	/** Check that 0 <= DEPTH <= MAX_DEPTH. */
+	private static void checkDepth(int depth) {
+		if (depth < 0 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException(
+					String.format("perft depth must be between 0 and %d",
+							MAX_DEPTH));
+		}
+	}
+
+	/**
+	 * Counts the subtree of a given depth below a position on a task's own
+	 * board, splitting it into one task per move while near the root.
+	 */
+	private class CountTask extends RecursiveTask<Long> {
+
+		/** Version of the serialized form of a task. */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * A task counting the subtree of depth DEPTH below BOARD, which is PLY
+		 * moves from the root.
+		 */
+		CountTask(Board board, int depth, int ply) {
+			_taskBoard = board;
+			_taskDepth = depth;
+			_taskPly = ply;
+		}
+
+		@Override
+		protected Long compute() {
+			if (_taskPly >= SPLIT_PLIES || _taskDepth < MIN_SPLIT_DEPTH) {
+				return new Perft(_taskBoard, 1, _hash).count(_taskDepth);
+			}
+			if (_taskBoard.gameOver()) {
+				return 0L;
+			}
+			int[] moves = new int[Board.MAX_MOVES];
+			int numMoves = _taskBoard.generateMoves(moves, 0);
+			CountTask[] tasks = new CountTask[numMoves];
+			for (int i = 0; i < numMoves; i++) {
+				Board child = new Board(_taskBoard);
+				child.makeMove(Move.mv(moves[i]));
+				tasks[i] = new CountTask(child, _taskDepth - 1, _taskPly + 1);
+			}
+			invokeAll(tasks);
+			long total = 0;
+			for (CountTask task : tasks) {
+				total += task.join();
+			}
+			return total;
+		}
+
+		/** The position below which I count. */
+		private final Board _taskBoard;
+		/** Depth of the subtree I count. */
+		private final int _taskDepth;
+		/** Distance of _taskBoard from the root. */
+		private final int _taskPly;
+	}
+
+	/**
+	 * A table of subtree counts indexed by Board.key() and depth, which may
+	 * be shared by several threads without locking. As in
+	 * TranspositionTable, each key is stored XORed with its count, so an
+	 * entry torn by concurrent writes fails to match on probe.
+	 */
+	private static class Hash {
+
+		/** A table using about MEGABYTES megabytes. */
+		Hash(int megabytes) {
+			long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+			int size = Integer.highestOneBit(
+					(int) Math.min(entries, 1 << 30));
+			_mask = size - 1;
+			_keys = new long[size];
+			_counts = new long[size];
+		}
+
+		/**
+		 * Return the count stored for the subtree of depth DEPTH below the
+		 * position with key KEY, or -1 if there is none.
+		 */
+		long probe(long key, int depth) {
+			key = salt(key, depth);
+			int i = index(key);
+			long count = _counts[i];
+			return count != 0 && (_keys[i] ^ count) == key ? count : -1;
+		}
+
+		/**
+		 * Record COUNT as the count of the subtree of depth DEPTH below the
+		 * position with key KEY.
+		 */
+		void store(long key, int depth, long count) {
+			key = salt(key, depth);
+			int i = index(key);
+			_counts[i] = count;
+			_keys[i] = key ^ count;
+		}
+
+		/** Return KEY combined with DEPTH. */
+		private static long salt(long key, int depth) {
+			return key ^ (DEPTH_SALT * (depth + 1));
+		}
+
+		/** Return the index of the entry for salted key KEY. */
+		private int index(long key) {
+			return (int) (key ^ (key >>> 32)) & _mask;
+		}
+
+		/** Number of bytes used by one entry. */
+		private static final int ENTRY_BYTES = 2 * Long.BYTES;
+		/** Multiplier used to mix the depth into a key. */
+		private static final long DEPTH_SALT = 0x9e3779b97f4a7c15L;
+
+		/** Mask selecting an entry index from a salted key. */
+		private final int _mask;
+		/** Salted keys of all entries, each XORed with the entry's count. */
+		private final long[] _keys;
+		/** Counts of all entries (0 for an empty entry). */
+		private final long[] _counts;
+	}
+
+	/**
+	 * Count the moves from the initial position. ARGS are an optional
+	 * "--threads=N" and "--hash=MB", then a depth, optionally followed by
+	 * "divide" to show the count for each move.
+	 */
+	public static void main(String... args) {
+		CommandArgs options = new CommandArgs(
+				"--threads=(\\d+){0,1} --hash=(\\d+){0,1} --=(.*){1,2}", args);
+		List<String> operands = options.get("--");
+		if (!options.ok() || operands.size() < 1 || operands.size() > 2
+				|| operands.size() == 2 && !operands.get(1).equals("divide")) {
+			usage();
+		}
+		int threads = intOption(options, "--threads", 1);
+		int hashMB = intOption(options, "--hash", 0);
+		if (threads < 1) {
+			usage();
+		}
+		int depth = 0;
+		try {
+			depth = Integer.parseInt(operands.get(0));
+			checkDepth(depth);
+		} catch (IllegalArgumentException excp) {
+			error(1, "Invalid depth: %s%n", operands.get(0));
+		}
+		Perft perft = new Perft(new Board(), threads, hashMB);
+		if (operands.size() == 2) {
+			perft.divide(depth, System.out);
+		} else {
+			long start = System.nanoTime();
+			long nodes = perft.count(depth);
+			report(depth, nodes, System.nanoTime() - start, System.out);
+		}
+	}
+
+	/** Print a usage message and exit. */
+	private static void usage() {
+		System.err.println("Usage: java loa.Perft [--threads=N] [--hash=MB]"
+				+ " DEPTH [divide]");
+		System.exit(1);
+	}
+
+	/** The position counted from (modified and restored while counting). */
+	private final Board _board;
+	/** Buffers for generated move codes, one per ply. */
+	private int[][] _moveStack = new int[0][];
+	/** Number of threads used by count. */
+	private final int _threads;
+	/** Counts of subtrees already counted, or null. */
+	private final Hash _hash;
+
+}
@@ -0,0 +1,390 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ucb.util.CommandArgs;
+
+import static loa.ProofTable.INFINITY;
+import static loa.Utils.*;
+
+/**
+ * A depth-first proof-number search (df-pn) that tries to prove that the
+ * side to move (the attacker) can force a win from a position, or to
+ * disprove it (the attacker can at best tie). Every position has a proof
+ * number, a lower bound on the number of positions that must be solved to
+ * prove it, and a disproof number, the same for a disproof. Where the
+ * attacker moves, the proof number is the least proof number of the
+ * children and the disproof number is the sum of theirs; where the
+ * defender moves, the reverse. The search repeatedly enters the most
+ * promising child until the thresholds passed down from its parent are
+ * reached, so it needs memory only for the path and the table of proof and
+ * disproof numbers.
+ *
+ * Positions are identified by Board.key() combined with Board.movesLeft()
+ * and the attacker, so the graph searched has no cycles and positions near
+ * the move limit are not confused with the same positions earlier in the
+ * game.
+ *
+ * With more than one thread, each thread searches from the root on its own
+ * copy of the board, and the threads share only the table (which needs no
+ * locks) and the count of nodes. A position's children are looked up in
+ * the table on every step, so each thread sees what the others have
+ * proved. To keep the threads from following one another, all but the
+ * first break ties between children at random and let children run past
+ * their thresholds by different margins.
+ *
+ * @author ChengXu
+ */
+class ProofSearch {
+
+	/** Results of a search. */
+	static final int UNKNOWN = 0, PROVED = 1, DISPROVED = 2;
+
+	/**
+	 * A single-threaded search from BOARD (which it modifies and restores)
+	 * using TABLE.
+	 */
+	ProofSearch(Board board, ProofTable table) {
+		this(board, table, 1);
+	}
+
+	/**
+	 * A search from BOARD (which it modifies and restores) using TABLE and
+	 * THREADS threads.
+	 */
+	ProofSearch(Board board, ProofTable table, int threads) {
+		_board = board;
+		_table = table;
+		_threads = threads;
+	}
+
+	/**
+	 * Try to prove or disprove a forced win for the side to move, searching
+	 * at most about MAXNODES positions. Return PROVED, DISPROVED, or UNKNOWN
+	 * if the search ran out of nodes.
+	 */
+	int solve(long maxNodes) {
+		return solve(maxNodes, Long.MAX_VALUE);
+	}
+
+	/**
+	 * As for solve(MAXNODES), but also stopping, with UNKNOWN, at time
+	 * DEADLINE (as from System.currentTimeMillis).
+	 */
+	int solve(long maxNodes, long deadline) {
+		_maxNodes = maxNodes;
+		_deadline = deadline;
+		_nodes.set(0);
+		_stopped = false;
+		_result = UNKNOWN;
+		_winningMove = null;
+		_attacker = _board.turn();
+		if (_board.gameOver()) {
+			return _board.winner() == _attacker ? PROVED : DISPROVED;
+		}
+		Worker[] workers = new Worker[_threads];
+		Thread[] helpers = new Thread[_threads - 1];
+		for (int i = 0; i < _threads; i++) {
+			workers[i] = new Worker(i == 0 ? _board : new Board(_board), i);
+		}
+		for (int i = 1; i < _threads; i++) {
+			helpers[i - 1] = new Thread(workers[i]);
+			helpers[i - 1].setDaemon(true);
+			helpers[i - 1].start();
+		}
+		workers[0].run();
+		for (Thread helper : helpers) {
+			try {
+				helper.join();
+			} catch (InterruptedException excp) {
+				throw new Error("unexpected interrupt");
+			}
+		}
+		return _result;
+	}
+
+	/** Return a winning move if the last solve PROVED a win, else null. */
+	Move winningMove() {
+		return _winningMove;
+	}
+
+	/** Return the number of positions searched by the last solve. */
+	long nodes() {
+		return _nodes.get();
+	}
+
+	/**
+	 * Return the key under which the numbers of BOARD are stored when
+	 * ATTACKER is trying to win.
+	 */
+	static long key(Board board, Piece attacker) {
+		return board.key() ^ MOVES_LEFT_SALT * (board.movesLeft() + 1)
+				^ (attacker == Piece.WP ? WHITE_ATTACKER_SALT : 0L);
+	}
+
+	/**
+	 * One thread of a search, with its own copy of the position and its own
+	 * buffers.
+	 */
+	private class Worker implements Runnable {
+
+		/**
+		 * Worker number ID (0 for the undiversified one) of the search,
+		 * searching BOARD.
+		 */
+		Worker(Board board, int id) {
+			_wboard = board;
+			_random = id == 0 ? null : new Random(id);
+			_slack = 1.0 + (id % SLACK_STEPS) * SLACK_STEP;
+			_batch = _threads == 1 ? 1 : NODE_BATCH;
+			int depth = board.movesLeft() + 2;
+			_moveStack = new int[depth][];
+			_keyStack = new long[depth][];
+			_pnStack = new int[depth][];
+			_dnStack = new int[depth][];
+		}
+
+		@Override
+		public void run() {
+			search(0, INFINITY, INFINITY);
+			_nodes.addAndGet(_unreported);
+			_unreported = 0;
+			if (_pn == 0 || _dn == 0) {
+				_result = _pn == 0 ? PROVED : DISPROVED;
+			}
+			_stopped = true;
+		}
+
+		/**
+		 * Search the position on _wboard, PLY moves from the root and not
+		 * over, until its proof number reaches THPN or its disproof number
+		 * reaches THDN, or the search stops. Leave its numbers in _pn and
+		 * _dn and in the table.
+		 */
+		private void search(int ply, int thpn, int thdn) {
+			countNode();
+			long startNodes = _searched;
+			long key = key(_wboard, _attacker);
+			boolean attacking = _wboard.turn() == _attacker;
+			if (_moveStack[ply] == null) {
+				_moveStack[ply] = new int[Board.MAX_MOVES];
+				_keyStack[ply] = new long[Board.MAX_MOVES];
+				_pnStack[ply] = new int[Board.MAX_MOVES];
+				_dnStack[ply] = new int[Board.MAX_MOVES];
+			}
+			int[] moves = _moveStack[ply];
+			long[] keys = _keyStack[ply];
+			int[] pns = _pnStack[ply], dns = _dnStack[ply];
+			int numMoves = _wboard.generateMoves(moves, 0);
+			for (int i = 0; i < numMoves; i++) {
+				_wboard.makeMove(Move.mv(moves[i]));
+				keys[i] = key(_wboard, _attacker);
+				if (_wboard.gameOver()) {
+					boolean won = _wboard.winner() == _attacker;
+					pns[i] = won ? 0 : INFINITY;
+					dns[i] = won ? INFINITY : 0;
+				} else {
+					pns[i] = dns[i] = 1;
+				}
+				_wboard.retract();
+			}
+
+			int[] mins = attacking ? pns : dns, sums = attacking ? dns : pns;
+			int pn, dn;
+			while (true) {
+				int min = INFINITY, sum = 0;
+				int best = -1, second = INFINITY, ties = 0;
+				for (int i = 0; i < numMoves; i++) {
+					if (pns[i] != 0 && dns[i] != 0) {
+						long data = _table.probe(keys[i]);
+						if (data != 0) {
+							pns[i] = ProofTable.pn(data);
+							dns[i] = ProofTable.dn(data);
+						}
+					}
+					if (mins[i] < min) {
+						second = min;
+						min = mins[i];
+						best = i;
+						ties = 1;
+					} else if (mins[i] == min && _random != null) {
+						second = min;
+						ties += 1;
+						if (_random.nextInt(ties) == 0) {
+							best = i;
+						}
+					} else if (mins[i] < second) {
+						second = mins[i];
+					}
+					sum = Math.min(INFINITY, sum + sums[i]);
+				}
+				pn = attacking ? min : sum;
+				dn = attacking ? sum : min;
+				if (pn == 0 && ply == 0) {
+					_winningMove = Move.mv(moves[best]);
+				}
+				if (pn >= thpn || dn >= thdn || _stopped) {
+					break;
+				}
+				int limit = (int) Math.min(INFINITY, second * _slack + 1);
+				int childThpn, childThdn;
+				if (attacking) {
+					childThpn = Math.min(thpn, limit);
+					childThdn = Math.min(INFINITY, thdn - dn + dns[best]);
+				} else {
+					childThpn = Math.min(INFINITY, thpn - pn + pns[best]);
+					childThdn = Math.min(thdn, limit);
+				}
+				_wboard.makeMove(Move.mv(moves[best]));
+				search(ply + 1, childThpn, childThdn);
+				_wboard.retract();
+				pns[best] = _pn;
+				dns[best] = _dn;
+			}
+			_table.store(key, pn, dn, _searched - startNodes + 1);
+			_pn = pn;
+			_dn = dn;
+		}
+
+		/**
+		 * Count one more node searched, adding my count to the shared one in
+		 * batches, and stop the search when the budget is spent or the
+		 * deadline has passed.
+		 */
+		private void countNode() {
+			_searched += 1;
+			_unreported += 1;
+			if (_unreported >= _batch) {
+				if (_nodes.addAndGet(_unreported) >= _maxNodes) {
+					_stopped = true;
+				}
+				_unreported = 0;
+			}
+			if (_searched % NODES_PER_CLOCK_CHECK == 0
+					&& System.currentTimeMillis() >= _deadline) {
+				_stopped = true;
+			}
+		}
+
+		/** The position searched (modified and restored while searching). */
+		private final Board _wboard;
+		/** Source of random tie breaks, or null if ties go to the first. */
+		private final Random _random;
+		/** Factor by which a child may pass the next best child's number. */
+		private final double _slack;
+		/** Number of nodes counted locally before adding to _nodes. */
+		private final int _batch;
+		/** Number of nodes I have searched. */
+		private long _searched;
+		/** Number of nodes not yet added to _nodes. */
+		private int _unreported;
+		/** The numbers of the position last searched. */
+		private int _pn, _dn;
+		/**
+		 * Buffers for the moves from the positions on the current path, and
+		 * the numbers of their children, one per ply (allocated when first
+		 * reached).
+		 */
+		private final int[][] _moveStack, _pnStack, _dnStack;
+		/** Keys of the children of the positions on the current path. */
+		private final long[][] _keyStack;
+	}
+
+	/**
+	 * Try to prove or disprove forced wins in the last positions of logged
+	 * games, printing one line per position. ARGS are optional
+	 * "--threads=N", "--hash=MB", "--nodes=N" (budget per position), and
+	 * "--last=N" (positions per game), then one or more log files.
+	 */
+	public static void main(String... args) {
+		CommandArgs options = new CommandArgs(
+				"--threads=(\\d+){0,1} --hash=(\\d+){0,1}"
+				+ " --nodes=(\\d+){0,1} --last=(\\d+){0,1} --=(.*){1,}", args);
+		List<String> logs = options.get("--");
+		if (!options.ok() || logs.isEmpty()) {
+			usage();
+		}
+		int threads = intOption(options, "--threads",
+				Runtime.getRuntime().availableProcessors());
+		int hashMB = intOption(options, "--hash", ProofTable.DEFAULT_SIZE_MB);
+		long maxNodes = longOption(options, "--nodes", DEFAULT_BATCH_NODES);
+		int last = intOption(options, "--last", DEFAULT_LAST);
+		if (threads < 1 || hashMB < 1 || maxNodes < 1 || last < 1) {
+			usage();
+		}
+
+		ProofTable table = new ProofTable(hashMB);
+		for (String log : logs) {
+			List<Board> games = null;
+			try {
+				games = GameLog.read(log);
+			} catch (IOException excp) {
+				error(1, "Could not read %s: %s%n", log, excp.getMessage());
+			}
+			for (int g = 0; g < games.size(); g++) {
+				Board game = games.get(g);
+				for (int n = 0; n < last && game.movesMade() > 0; n++) {
+					game.retract();
+					ProofSearch search = new ProofSearch(game, table, threads);
+					long start = System.nanoTime();
+					int result = search.solve(maxNodes);
+					System.out.printf("%s game %d move %d %s to move: %s"
+							+ " (%d nodes in %.3f s)%n", log, g + 1,
+							game.movesMade() + 1, game.turn().fullName(),
+							result == PROVED ? "win " + search.winningMove()
+							: result == DISPROVED ? "no win" : "unknown",
+							search.nodes(), (System.nanoTime() - start) / 1e9);
+				}
+			}
+		}
+	}
+
+	/** Print a usage message and exit. */
+	private static void usage() {
+		System.err.println("Usage: java loa.ProofSearch [--threads=N]"
+				+ " [--hash=MB] [--nodes=N] [--last=N] LOG-FILE...");
+		System.exit(1);
+	}
+
+	/** Multiplier used to mix the number of moves left into a key. */
+	private static final long MOVES_LEFT_SALT = 0x9e3779b97f4a7c15L;
+	/** Value mixed into the keys of searches in which white attacks. */
+	private static final long WHITE_ATTACKER_SALT = 0x2545f4914f6cdd1dL;
+	/** Number of nodes a thread searches between checks of the clock. */
+	private static final int NODES_PER_CLOCK_CHECK = 256;
+	/** Number of nodes a thread counts before adding them to the total. */
+	private static final int NODE_BATCH = 256;
+	/** Number of different threshold slacks given to threads, and step. */
+	private static final int SLACK_STEPS = 4;
+	private static final double SLACK_STEP = 0.25;
+	/** Default node budget and positions per game of main. */
+	private static final long DEFAULT_BATCH_NODES = 1_000_000;
+	private static final int DEFAULT_LAST = 10;
+
+	/** The position searched (modified and restored while searching). */
+	private final Board _board;
+	/** Proof and disproof numbers of positions searched. */
+	private final ProofTable _table;
+	/** Number of threads searching. */
+	private final int _threads;
+	/** Limit on the number of positions searched by the current solve. */
+	private long _maxNodes;
+	/** Time (as from System.currentTimeMillis) at which to stop solving. */
+	private long _deadline;
+	/** Number of positions searched by the current solve. */
+	private final AtomicLong _nodes = new AtomicLong();
+	/** True when the threads of the current solve should stop. */
+	private volatile boolean _stopped;
+	/** Result of the current solve, set by the first thread to finish. */
+	private volatile int _result;
+	/** The side trying to win: the side to move at the root. */
+	private Piece _attacker;
+	/** A winning move from the root, once one is proved. */
+	private volatile Move _winningMove;
+
+}
@@ -0,0 +1,97 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.BoardTest.*;
+import static loa.Piece.*;
+
+/** Tests of the ProofSearch class.
+ *  @author
+ */
+public class ProofSearchTest {
+
+    /** Return true iff on B, after MOVE by the side to move, every reply
+     *  allows that side to win at once. Leaves B unchanged. */
+    private static boolean winsInThree(Board b, Move move) {
+        Piece side = b.turn();
+        b.makeMove(move);
+        boolean wins = true;
+        for (Move reply : b.legalMoves()) {
+            b.makeMove(reply);
+            boolean joins = false;
+            for (Move last : b.legalMoves()) {
+                b.makeMove(last);
+                joins |= b.winner() == side;
+                b.retract();
+            }
+            wins &= joins;
+            b.retract();
+        }
+        b.retract();
+        return wins;
+    }
+
+    @Test
+    public void testProofSearch1() {
+        Board b = endgame("b5 d7", "a5 h6", BP, 10);
+        ProofSearch search = new ProofSearch(b, new ProofTable(1));
+        assertEquals("forced win in three", ProofSearch.PROVED,
+                     search.solve(100000));
+        assertTrue("winning move wins", winsInThree(b, search.winningMove()));
+        assertEquals("board restored",
+                     endgame("b5 d7", "a5 h6", BP, 10).toString(),
+                     b.toString());
+        b = endgame("e5 a6", "f5 d6", BP, 10);
+        assertEquals("forced loss", ProofSearch.DISPROVED,
+                     new ProofSearch(b, new ProofTable(1)).solve(100000));
+        b = endgame("c2 h2", "f3 c5", BP, 10);
+        assertEquals("forced win in five", ProofSearch.PROVED,
+                     new ProofSearch(b, new ProofTable(1)).solve(100000));
+        b.setMoveLimit(2);
+        assertEquals("tie at the move limit is not a win",
+                     ProofSearch.DISPROVED,
+                     new ProofSearch(b, new ProofTable(1)).solve(100000));
+        b.setMoveLimit(0);
+        assertTrue("game tied", b.gameOver());
+        assertEquals("tied game is not a win", ProofSearch.DISPROVED,
+                     new ProofSearch(b, new ProofTable(1)).solve(100000));
+    }
+
+    @Test
+    public void testProofSearchThreads1() {
+        String[][] positions = {
+            { "b5 d7", "a5 h6" }, { "e5 a6", "f5 d6" },
+            { "c2 h2", "f3 c5" }, { "a6 f6", "b4 g5" }
+        };
+        for (String[] p : positions) {
+            for (int limit : new int[] { 2, 10 }) {
+                Board b = endgame(p[0], p[1], BP, limit);
+                int single =
+                    new ProofSearch(b, new ProofTable(1)).solve(100000);
+                ProofSearch search = new ProofSearch(b, new ProofTable(1), 3);
+                assertEquals("threads agree on " + p[0] + " vs " + p[1]
+                             + " limit " + limit,
+                             single, search.solve(100000));
+                assertEquals("board restored",
+                             endgame(p[0], p[1], BP, limit).toString(),
+                             b.toString());
+                if (single == ProofSearch.PROVED) {
+                    b.makeMove(search.winningMove());
+                    assertEquals("opponent cannot win after winning move",
+                                 ProofSearch.DISPROVED,
+                                 new ProofSearch(b, new ProofTable(1))
+                                 .solve(100000));
+                }
+            }
+        }
+        Board b = endgame("b5 d7", "a5 h6", BP, 2);
+        ProofSearch search = new ProofSearch(b, new ProofTable(1), 4);
+        assertEquals("four threads", ProofSearch.PROVED,
+                     search.solve(100000));
+        assertTrue("winning move wins", winsInThree(b, search.winningMove()));
+    }
+
+}
@@ -0,0 +1,129 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of proof and disproof numbers (see ProofSearch),
+ * indexed by ProofSearch.key(). As in TranspositionTable, entries are kept
+ * in two parallel primitive arrays, each entry's key is stored XORed with
+ * its packed data, and each bucket holds two entries: the first is
+ * replaced only by the result of at least as much work (or by a proof or
+ * disproof), the second is always replaced. Because of the XOR, the table
+ * may be shared by several searching threads without locking.
+ *
+ * @author ChengXu
+ */
+class ProofTable {
+
+	/** Proof or disproof number of a position that is disproved or proved. */
+	static final int INFINITY = (1 << 28) - 1;
+
+	/** Default size of the table in megabytes. */
+	static final int DEFAULT_SIZE_MB = 16;
+
+	/** Number of bytes used by one entry (key and data). */
+	static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+	/** Number of entries in one bucket. */
+	private static final int BUCKET_SIZE = 2;
+
+	/**
+	 * A table using about MEGABYTES (at most TranspositionTable.MAX_SIZE_MB)
+	 * megabytes.
+	 */
+	ProofTable(int megabytes) {
+		_megabytes = megabytes;
+		int buckets = TranspositionTable.numBuckets(megabytes, ENTRY_BYTES,
+				BUCKET_SIZE);
+		_mask = buckets - 1;
+		_keys = new long[buckets * BUCKET_SIZE];
+		_data = new long[buckets * BUCKET_SIZE];
+	}
+
+	/** Return the size I was created with, in megabytes. */
+	int megabytes() {
+		return _megabytes;
+	}
+
+	/** Remove all entries. */
+	void clear() {
+		Arrays.fill(_keys, 0L);
+		Arrays.fill(_data, 0L);
+	}
+
+	/**
+	 * Return the packed data stored for KEY, or 0 if there is none. Use the
+	 * static accessors below to unpack the result.
+	 */
+	long probe(long key) {
+		int slot = bucket(key);
+		for (int i = slot; i < slot + BUCKET_SIZE; i++) {
+			long data = _data[i];
+			if (data != 0 && (_keys[i] ^ data) == key) {
+				return data;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Record proof number PN and disproof number DN for KEY, found after
+	 * searching WORK nodes below it.
+	 */
+	void store(long key, int pn, int dn, long work) {
+		int slot = bucket(key);
+		long data = pack(pn, dn, work);
+		long old = _data[slot];
+		if (old != 0 && (_keys[slot] ^ old) != key
+				&& work(data) < work(old) && pn != 0 && dn != 0) {
+			slot += 1;
+		}
+		_data[slot] = data;
+		_keys[slot] = key ^ data;
+	}
+
+	/** Return the proof number recorded in DATA. */
+	static int pn(long data) {
+		return (int) (data >>> PN_SHIFT) & NUMBER_MASK;
+	}
+
+	/** Return the disproof number recorded in DATA. */
+	static int dn(long data) {
+		return (int) (data >>> DN_SHIFT) & NUMBER_MASK;
+	}
+
+	/** Return the rounded base-2 logarithm of the work recorded in DATA. */
+	private static int work(long data) {
+		return (int) (data >>> WORK_SHIFT) & WORK_MASK;
+	}
+
+	/** Return PN, DN, and the logarithm of WORK, packed. */
+	private static long pack(int pn, int dn, long work) {
+		long logWork = Math.min(WORK_MASK,
+				Long.SIZE - Long.numberOfLeadingZeros(work));
+		return ((long) pn) << PN_SHIFT | ((long) dn) << DN_SHIFT
+				| logWork << WORK_SHIFT;
+	}
+
+	/** Return the index of the first entry of the bucket for KEY. */
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & _mask) * BUCKET_SIZE;
+	}
+
+	/** Layout of the packed data. */
+	private static final int PN_SHIFT = 0, DN_SHIFT = 28,
+			NUMBER_MASK = (1 << 28) - 1, WORK_SHIFT = 56,
+			WORK_MASK = (1 << 8) - 1;
+
+	/** Size in megabytes requested at construction. */
+	private final int _megabytes;
+	/** Mask selecting a bucket number from a hashed key. */
+	private final int _mask;
+	/** Keys of all entries, each XORed with the entry's data. */
+	private final long[] _keys;
+	/** Packed data of all entries (0 for an empty entry). */
+	private final long[] _data;
+
+}
@@ -0,0 +1,77 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * The tunable parameters of the selectivity of Searcher: late move
+ * reductions and futility pruning. Each parameter is a non-negative integer
+ * with a name, by which the "param" command sets it. A value of 0 for
+ * LMR_REDUCTION or FUTILITY_DEPTH turns the corresponding selectivity off.
+ *
+ * @author ChengXu
+ */
+class SearchParameters {
+
+	/** Number of moves at a node searched to full depth before reducing. */
+	static final String LMR_MOVES = "lmrmoves";
+	/** Smallest remaining depth at which moves are reduced. */
+	static final String LMR_DEPTH = "lmrdepth";
+	/** Number of plies by which late quiet moves are reduced. */
+	static final String LMR_REDUCTION = "lmrreduction";
+	/** Largest remaining depth at which quiet moves may be futile. */
+	static final String FUTILITY_DEPTH = "futilitydepth";
+	/** Futility margin per ply of remaining depth. */
+	static final String FUTILITY_MARGIN = "futilitymargin";
+
+	/** Parameters with their default values. */
+	SearchParameters() {
+		_values.put(LMR_MOVES, 3);
+		_values.put(LMR_DEPTH, 3);
+		_values.put(LMR_REDUCTION, 1);
+		_values.put(FUTILITY_DEPTH, 2);
+		_values.put(FUTILITY_MARGIN, 40);
+	}
+
+	/** Return the names of all parameters. */
+	Set<String> names() {
+		return _values.keySet();
+	}
+
+	/** Return the value of the parameter NAME. */
+	int get(String name) {
+		Integer value = _values.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("unknown parameter: " + name);
+		}
+		return value;
+	}
+
+	/** Set the parameter NAME to VALUE. */
+	void set(String name, int value) {
+		if (!_values.containsKey(name)) {
+			throw new IllegalArgumentException("unknown parameter: " + name);
+		}
+		if (value < 0) {
+			throw new IllegalArgumentException("negative parameter value: "
+					+ value);
+		}
+		_values.put(name, value);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for (String name : names()) {
+			out.append(String.format("%s %d%n", name, get(name)));
+		}
+		return out.toString();
+	}
+
+	/** Current values of the parameters, by name. */
+	private final LinkedHashMap<String, Integer> _values =
+			new LinkedHashMap<>();
+
+}
@@ -0,0 +1,661 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Square.NUM_SQUARES;
+import static loa.TranspositionTable.*;
+
+import java.util.Arrays;
+
+/**
+ * The game-tree search used by MachinePlayer. A Searcher owns a private copy
+ * of the position it searches, so several Searchers may search the same
+ * position in parallel, communicating only through a shared
+ * TranspositionTable.
+ *
+ * @author ChengXu
+ */
+class Searcher {
+
+	/**
+	 * A position-score magnitude indicating a win (for white if positive, black
+	 * if negative).
+	 */
+	static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+	/** A magnitude greater than a normal value. */
+	static final int INFTY = Integer.MAX_VALUE;
+	/** Deepest search allowed. */
+	static final int MAX_DEPTH = 64;
+	/** Largest number of plies searched by quiesce beyond a leaf. */
+	private static final int QUIESCENCE_DEPTH = 8;
+	/** Maximum distance from the root of any searched position. */
+	private static final int MAX_PLY = MAX_DEPTH + QUIESCENCE_DEPTH + 1;
+	/** Number of nodes searched between checks of the clock. */
+	private static final int NODES_PER_CLOCK_CHECK = 1024;
+	/** Ordering scores of the hash move, captures and killer moves. */
+	private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE,
+			CAPTURE_SCORE = 1 << 30, KILLER_SCORE = CAPTURE_SCORE - 1;
+	/** Largest history score, which keeps quiet moves below the killers. */
+	private static final int MAX_HISTORY = KILLER_SCORE - 2;
+	/** Half-width of the first aspiration window around a guessed value. */
+	private static final int ASPIRATION_WINDOW = 16;
+
+	/**
+	 * A Searcher of a copy of BOARD that shares TABLE. It searches until
+	 * DEADLINE (as from System.currentTimeMillis) or until stopped.
+	 */
+	Searcher(Board board, TranspositionTable table, long deadline) {
+		this(board, table, null, deadline, newHistory(),
+				new SearchParameters());
+	}
+
+	/**
+	 * As for Searcher(BOARD, TABLE, DEADLINE), but taking static values from
+	 * EVALCACHE (if not null), ordering quiet moves by, and updating, the
+	 * history scores HISTORY, which may be carried over from earlier
+	 * searches, and pruning as set by PARAMS.
+	 */
+	Searcher(Board board, TranspositionTable table, EvalCache evalCache,
+			long deadline, int[][] history, SearchParameters params) {
+		_board = new Board(board);
+		_table = table;
+		_evalCache = evalCache;
+		_deadline = deadline;
+		_history = history;
+		_lmrMoves = params.get(SearchParameters.LMR_MOVES);
+		_lmrDepth = params.get(SearchParameters.LMR_DEPTH);
+		_lmrReduction = params.get(SearchParameters.LMR_REDUCTION);
+		_futilityDepth = params.get(SearchParameters.FUTILITY_DEPTH);
+		_futilityMargin = params.get(SearchParameters.FUTILITY_MARGIN);
+	}
+
+	/**
+	 * Return a table of history scores for a Searcher, indexed by the from and
+	 * to square indices of a move.
+	 */
+	static int[][] newHistory() {
+		return new int[NUM_SQUARES][NUM_SQUARES];
+	}
+
+	/**
+	 * Age the history scores HISTORY between searches, so that moves that
+	 * were good in earlier positions count for less than recent ones.
+	 */
+	static void ageHistory(int[][] history) {
+		for (int[] row : history) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Search my position to DEPTH plies (at least 1) and return its value,
+	 * positive being good for white. Afterwards, foundMove() is the best move
+	 * found. If the search is stopped before it completes, the result is
+	 * meaningless and stopped() is true.
+	 */
+	int search(int depth) {
+		return search(depth, -INFTY, INFTY);
+	}
+
+	/**
+	 * As for search(DEPTH), but searching first within an aspiration window
+	 * around GUESS, the value of the previous iteration. The window is
+	 * widened and the search repeated whenever the value falls outside it.
+	 */
+	int search(int depth, int guess) {
+		if (Math.abs(guess) >= WINNING_VALUE - MAX_PLY) {
+			return search(depth);
+		}
+		long delta = ASPIRATION_WINDOW;
+		int alpha = guess - ASPIRATION_WINDOW,
+				beta = guess + ASPIRATION_WINDOW;
+		while (true) {
+			int value = search(depth, alpha, beta);
+			if (_stopped) {
+				return value;
+			}
+			delta *= 2;
+			if (value <= alpha) {
+				alpha = (int) Math.max(-INFTY, value - delta);
+			} else if (value >= beta) {
+				beta = (int) Math.min(INFTY, value + delta);
+			} else {
+				return value;
+			}
+			Utils.debug(1, "search depth:%d value:%d window:[%d, %d]",
+					depth, value, alpha, beta);
+		}
+	}
+
+	/**
+	 * Search my position to DEPTH plies within the window ALPHA .. BETA
+	 * and return its value, as for search(DEPTH).
+	 */
+	private int search(int depth, int alpha, int beta) {
+		assert depth > 0 && depth <= MAX_DEPTH;
+		_foundMove = null;
+		_rootPly = _board.movesMade();
+		int sense = _board.turn() == Piece.WP ? 1 : -1;
+		return findMove(_board, depth, true, sense, alpha, beta);
+	}
+
+	/**
+	 * Search my position by iterative deepening from depth FIRSTDEPTH up to
+	 * MAXDEPTH, until finished or stopped, using aspiration windows after
+	 * the first iteration.
+	 */
+	void iterate(int firstDepth, int maxDepth) {
+		int value = 0;
+		for (int depth = firstDepth; depth <= maxDepth && !_stopped; depth++) {
+			value = depth == firstDepth ? search(depth) : search(depth, value);
+		}
+	}
+
+	/**
+	 * Take the values of positions found in TABLEBASE (if not null) as exact,
+	 * instead of searching them.
+	 */
+	void setTablebase(Tablebase tablebase) {
+		_tablebase = tablebase;
+	}
+
+	/**
+	 * Return the best move found by the last search, or null if the side to
+	 * move has no legal moves.
+	 */
+	Move foundMove() {
+		return _foundMove;
+	}
+
+	/** Return the number of nodes I have visited. */
+	long nodes() {
+		return _nodes;
+	}
+
+	/** Return true iff I have been stopped or have run out of time. */
+	boolean stopped() {
+		return _stopped;
+	}
+
+	/** Stop searching as soon as possible. May be called from any thread. */
+	void stop() {
+		_stopped = true;
+	}
+
+	/** Return killer-move tables for all plies, with no moves. */
+	private static int[][] newKillers() {
+		int[][] killers = new int[MAX_PLY][2];
+		for (int[] k : killers) {
+			Arrays.fill(k, NO_MOVE);
+		}
+		return killers;
+	}
+
+	/**
+	 * Return true iff the current search has run past its deadline, checking
+	 * the clock only every NODES_PER_CLOCK_CHECK nodes.
+	 */
+	private boolean outOfTime() {
+		_nodes += 1;
+		if (!_stopped && _nodes % NODES_PER_CLOCK_CHECK == 0
+				&& System.currentTimeMillis() >= _deadline) {
+			_stopped = true;
+		}
+		return _stopped;
+	}
+
+	/**
+	 * Find a move from position BOARD and return its value, recording the move
+	 * found in _foundMove iff SAVEMOVE. The move should have maximal value or
+	 * have value > BETA if SENSE==1, and minimal value or value < ALPHA if
+	 * SENSE==-1. Searches up to DEPTH levels, then continues with quiesce.
+	 * DEPTH must be positive if SAVEMOVE. If the game is over on BOARD,
+	 * returns its final value and does not set _foundMove. Results are
+	 * recorded in and reused from _table. If the search runs out of time,
+	 * returns a meaningless value with _stopped set.
+	 *
+	 * This is a principal variation search: each move after the first is
+	 * searched with a null window, to show that it is no better than the
+	 * best so far, and searched again with the full window only if not.
+	 * Late quiet moves are first searched to a reduced depth (leaving at least
+	 * one ply of full-width search), and near the leaves, quiet moves are
+	 * skipped when the static value is too far below the window to be
+	 * raised into it (see SearchParameters).
+	 */
+	private int findMove(Board board, int depth, boolean saveMove, int sense,
+			int alpha, int beta) {
+		if (depth == 0) {
+			return quiesce(board, QUIESCENCE_DEPTH, sense, alpha, beta);
+		}
+		if (outOfTime()) {
+			return 0;
+		}
+		int ply = board.movesMade() - _rootPly;
+		if (board.gameOver()) {
+			return finalValue(board.winner(), ply);
+		}
+		if (!saveMove && _tablebase != null) {
+			int value = tablebaseValue(board, ply);
+			if (value != Tablebase.NO_ENTRY) {
+				return value;
+			}
+		}
+		long key = board.key();
+		long entry = _table.probe(key);
+		int hashMove = entry == 0 ? NO_MOVE : TranspositionTable.move(entry);
+		if (entry != 0 && !saveMove
+				&& TranspositionTable.depth(entry) >= depth) {
+			int score = fromTable(TranspositionTable.score(entry), ply);
+			switch (TranspositionTable.bound(entry)) {
+			case EXACT:
+				return score;
+			case LOWER:
+				alpha = Math.max(alpha, score);
+				break;
+			default:
+				beta = Math.min(beta, score);
+				break;
+			}
+			if (alpha >= beta) {
+				return score;
+			}
+		}
+		int alpha0 = alpha, beta0 = beta;
+		int response = 0;
+		int bestValue = sense == 1 ? -INFTY : INFTY;
+		Move bestMove = null;
+		boolean futile = !saveMove && depth <= _futilityDepth
+				&& isFutile(board, depth, sense, alpha, beta);
+		boolean pruned = false;
+		int[] moves = _moveStack[ply];
+		int[] scores = _scoreStack[ply];
+		int numMoves = board.generateMoves(moves, 0);
+		scoreMoves(moves, scores, numMoves, hashMove, ply);
+		for (int i = 0; i < numMoves; i++) {
+			pickMove(moves, scores, i, numMoves);
+			Move move = Move.mv(moves[i]);
+			boolean quiet = scores[i] < KILLER_SCORE - 1
+					&& !connects(board, moves[i]);
+
+			board.makeMove(move);
+			if (futile && quiet && bestMove != null
+					&& board.winner() != board.turn().opposite()) {
+				board.retract();
+				pruned = true;
+				continue;
+			}
+			int reduction = 0;
+			if (quiet && i >= _lmrMoves && depth >= _lmrDepth) {
+				reduction = Math.max(0, Math.min(_lmrReduction, depth - 2));
+			}
+			if (bestMove == null) {
+				response = findMove(board, depth - 1, false, -sense, alpha,
+						beta);
+			} else if (sense == 1) {
+				response = findMove(board, depth - 1 - reduction, false,
+						-sense, alpha, alpha + 1);
+				if (reduction > 0 && response > alpha && !_stopped) {
+					response = findMove(board, depth - 1, false, -sense,
+							alpha, alpha + 1);
+				}
+				if (response > alpha && response < beta && !_stopped) {
+					response = findMove(board, depth - 1, false, -sense,
+							response, beta);
+				}
+			} else {
+				response = findMove(board, depth - 1 - reduction, false,
+						-sense, beta - 1, beta);
+				if (reduction > 0 && response < beta && !_stopped) {
+					response = findMove(board, depth - 1, false, -sense,
+							beta - 1, beta);
+				}
+				if (response < beta && response > alpha && !_stopped) {
+					response = findMove(board, depth - 1, false, -sense,
+							alpha, response);
+				}
+			}
+			if (_stopped) {
+				board.retract();
+				return 0;
+			}
+			if (Utils.getMessageLevel() >= 2) {
+				Utils.debug(2, "findMove best[%d]resp[%d]move[%s] depth:%d,"
+						+ " sense:%d, alpha:%d, beta:%d", bestValue, response,
+						board.lastMove(), depth, sense, alpha, beta);
+			}
+			if (sense == 1) {
+				if (response > bestValue) {
+					bestValue = response;
+					bestMove = move;
+					alpha = Math.max(alpha, response);
+					if (saveMove) {
+						_foundMove = board.lastMove();
+					}
+					if (alpha >= beta) {
+						board.retract();
+						recordCutoff(moves[i], depth, ply);
+						break;
+					}
+				}
+			} else {
+				if (response < bestValue) {
+					bestValue = response;
+					bestMove = move;
+					beta = Math.min(beta, response);
+					if (saveMove) {
+						_foundMove = board.lastMove();
+					}
+					if (alpha >= beta) {
+						board.retract();
+						recordCutoff(moves[i], depth, ply);
+						break;
+					}
+				}
+			}
+			board.retract();
+		}
+
+		if (pruned) {
+			int bound = futilityBound(board, depth, sense);
+			bestValue = sense == 1 ? Math.max(bestValue, bound)
+					: Math.min(bestValue, bound);
+		}
+
+		if (bestMove == null) {
+			if (saveMove && numMoves > 0) {
+				_foundMove = Move.mv(moves[numMoves / 2]);
+			}
+			return evaluate(board);
+		}
+
+		int bound = bestValue <= alpha0 ? UPPER
+				: bestValue >= beta0 ? LOWER : EXACT;
+		_table.store(key, depth, bound, toTable(bestValue, ply),
+				bestMove.index());
+		return bestValue;
+	}
+
+	/**
+	 * Return true iff the static value of BOARD, searched to DEPTH by the
+	 * side SENSE within the window ALPHA .. BETA, is so far outside the
+	 * window that no quiet move is likely to bring it back.
+	 */
+	private boolean isFutile(Board board, int depth, int sense, int alpha,
+			int beta) {
+		if (Math.max(Math.abs(alpha), Math.abs(beta))
+				>= WINNING_VALUE - MAX_PLY) {
+			return false;
+		}
+		int bound = futilityBound(board, depth, sense);
+		return sense == 1 ? bound <= alpha : bound >= beta;
+	}
+
+	/**
+	 * Return the most that a quiet move is taken to gain for the side SENSE
+	 * on BOARD, searched to DEPTH: the static value moved by the futility
+	 * margin. A node whose quiet moves are skipped as futile returns no
+	 * worse than this, so that a loss found among its other moves is not
+	 * mistaken for its value.
+	 */
+	private int futilityBound(Board board, int depth, int sense) {
+		long bound = evaluate(board) + (long) sense * _futilityMargin * depth;
+		return (int) Math.max(-WINNING_VALUE + MAX_PLY + 1,
+				Math.min(WINNING_VALUE - MAX_PLY - 1, bound));
+	}
+
+	/**
+	 * Return true iff the move with code CODE on BOARD puts the moved piece
+	 * next to more of its own pieces than it had before.
+	 */
+	private static boolean connects(Board board, int code) {
+		int index = Move.index(code);
+		long from = 1L << (index / NUM_SQUARES),
+				to = 1L << (index % NUM_SQUARES);
+		long own = board.pieces(board.turn()) & ~from;
+		return Long.bitCount(Board.neighbors(to) & own)
+				> Long.bitCount(Board.neighbors(from) & own);
+	}
+
+	/** Return the static value of BOARD, from _evalCache if possible. */
+	private int evaluate(Board board) {
+		return _evalCache == null ? board.valueBPMinusWP()
+				: _evalCache.value(board);
+	}
+
+	/**
+	 * Return the value of a finished game won by WINNER (EMP for a tie),
+	 * PLY moves from the root. Quicker wins have larger magnitudes.
+	 */
+	private static int finalValue(Piece winner, int ply) {
+		switch (winner) {
+		case WP:
+			return WINNING_VALUE - ply;
+		case BP:
+			return -WINNING_VALUE + ply;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Return the exact value of BOARD, PLY moves from the root, from
+	 * _tablebase, or Tablebase.NO_ENTRY if it has none or the result it
+	 * records would not be reached within the move limit or MAX_PLY.
+	 */
+	private int tablebaseValue(Board board, int ply) {
+		int value = _tablebase.probe(board);
+		if (value == Tablebase.NO_ENTRY || value == Tablebase.DRAW) {
+			return value;
+		}
+		int distance = Tablebase.distance(value);
+		if (distance > board.movesLeft() || ply + distance >= MAX_PLY) {
+			return Tablebase.NO_ENTRY;
+		}
+		return finalValue(value > 0 ? board.turn() : board.turn().opposite(),
+				ply + distance);
+	}
+
+	/**
+	 * Return VALUE, found PLY moves from the root, as stored in the table:
+	 * the magnitudes of winning values are made relative to the position
+	 * itself rather than the root.
+	 */
+	private static int toTable(int value, int ply) {
+		if (value >= WINNING_VALUE - MAX_PLY) {
+			return value + ply;
+		} else if (value <= -WINNING_VALUE + MAX_PLY) {
+			return value - ply;
+		}
+		return value;
+	}
+
+	/** Return the inverse of toTable(VALUE, PLY). */
+	private static int fromTable(int value, int ply) {
+		if (value >= WINNING_VALUE - MAX_PLY) {
+			return value - ply;
+		} else if (value <= -WINNING_VALUE + MAX_PLY) {
+			return value + ply;
+		}
+		return value;
+	}
+
+	/**
+	 * Set SCORES[0 .. N-1] to the ordering scores of the move codes in
+	 * MOVES[0 .. N-1], generated PLY moves from the root, where HASHMOVE is
+	 * the index of the move suggested by the table (or NO_MOVE). Moves are
+	 * tried in the order: the hash move, captures, the two killer moves of
+	 * PLY, then other moves by their history scores.
+	 */
+	void scoreMoves(int[] moves, int[] scores, int n, int hashMove,
+			int ply) {
+		int[] killers = _killers[ply];
+		for (int i = 0; i < n; i++) {
+			int index = Move.index(moves[i]);
+			int history = _history[index / NUM_SQUARES][index % NUM_SQUARES];
+			if (index == hashMove) {
+				scores[i] = HASH_MOVE_SCORE;
+			} else if (Move.isCapture(moves[i])) {
+				scores[i] = CAPTURE_SCORE + history;
+			} else if (index == killers[0]) {
+				scores[i] = KILLER_SCORE;
+			} else if (index == killers[1]) {
+				scores[i] = KILLER_SCORE - 1;
+			} else {
+				scores[i] = history;
+			}
+		}
+	}
+
+	/**
+	 * Move the code with the largest score in MOVES[I .. N-1] to MOVES[I],
+	 * swapping its score in SCORES likewise.
+	 */
+	static void pickMove(int[] moves, int[] scores, int i, int n) {
+		int best = i;
+		for (int k = i + 1; k < n; k++) {
+			if (scores[k] > scores[best]) {
+				best = k;
+			}
+		}
+		if (best != i) {
+			int code = moves[best];
+			moves[best] = moves[i];
+			moves[i] = code;
+			int score = scores[best];
+			scores[best] = scores[i];
+			scores[i] = score;
+		}
+	}
+
+	/**
+	 * Record that the move with code CODE, PLY moves from the root, caused a
+	 * cutoff in a search of depth DEPTH, in the killer moves of PLY (unless
+	 * it is a capture) and in the history scores.
+	 */
+	void recordCutoff(int code, int depth, int ply) {
+		int index = Move.index(code);
+		int[] killers = _killers[ply];
+		if (!Move.isCapture(code) && killers[0] != index) {
+			killers[1] = killers[0];
+			killers[0] = index;
+		}
+		int[] row = _history[index / NUM_SQUARES];
+		row[index % NUM_SQUARES] = Math.min(
+				row[index % NUM_SQUARES] + depth * depth, MAX_HISTORY);
+	}
+
+	/**
+	 * Return the value of BOARD, at a leaf of the full-width search, for the
+	 * side SENSE within the window ALPHA .. BETA, as for findMove. Only
+	 * captures are searched, and at the first ply (when DEPTH is
+	 * QUIESCENCE_DEPTH) moves that join clusters of the side to move (as
+	 * shown by a drop in its Euler number), until the position is quiet or
+	 * DEPTH more plies have been searched. The side to move may instead
+	 * stand pat on the static value.
+	 */
+	private int quiesce(Board board, int depth, int sense, int alpha,
+			int beta) {
+		if (outOfTime()) {
+			return 0;
+		}
+		int ply = board.movesMade() - _rootPly;
+		if (board.gameOver()) {
+			return finalValue(board.winner(), ply);
+		}
+		int bestValue = evaluate(board);
+		if (sense == 1 ? bestValue >= beta : bestValue <= alpha) {
+			return bestValue;
+		}
+		if (depth == 0) {
+			return bestValue;
+		}
+		if (sense == 1) {
+			alpha = Math.max(alpha, bestValue);
+		} else {
+			beta = Math.min(beta, bestValue);
+		}
+		boolean joins = depth == QUIESCENCE_DEPTH;
+		Piece turn = board.turn();
+		int euler = board.eulerNumber(turn);
+		long own = board.pieces(turn);
+		int[] moves = _moveStack[ply];
+		int numMoves = board.generateMoves(moves, 0);
+		for (int i = 0; i < numMoves; i++) {
+			int code = moves[i];
+			int index = Move.index(code);
+			long from = 1L << (index / NUM_SQUARES),
+					to = 1L << (index % NUM_SQUARES);
+			boolean capture = Move.isCapture(code);
+			if (!capture
+					&& (!joins || (Board.neighbors(to) & own & ~from) == 0)) {
+				continue;
+			}
+			board.makeMove(Move.mv(code));
+			if (!capture
+					&& board.eulerNumber(turn) >= euler) {
+				board.retract();
+				continue;
+			}
+			int response = quiesce(board, depth - 1, -sense, alpha, beta);
+			board.retract();
+			if (_stopped) {
+				return 0;
+			}
+			if (sense == 1 ? response > bestValue : response < bestValue) {
+				bestValue = response;
+				if (sense == 1) {
+					alpha = Math.max(alpha, response);
+				} else {
+					beta = Math.min(beta, response);
+				}
+				if (alpha >= beta) {
+					break;
+				}
+			}
+		}
+		return bestValue;
+	}
+
+	/** Used to convey moves discovered by findMove. */
+	private Move _foundMove;
+
+	/**
+	 * Buffers for generated move codes, one per ply: the moves of a position
+	 * P plies from the root are generated into _moveStack[P].
+	 */
+	private final int[][] _moveStack = new int[MAX_PLY][Board.MAX_MOVES];
+	/** Ordering scores of the moves in _moveStack, one buffer per ply. */
+	private final int[][] _scoreStack = new int[MAX_PLY][Board.MAX_MOVES];
+	/**
+	 * The two most recent quiet moves (as indices) that caused cutoffs at
+	 * each ply, or NO_MOVE.
+	 */
+	private final int[][] _killers = newKillers();
+	/** History scores of moves, indexed by from and to square indices. */
+	private final int[][] _history;
+	/** Value of _board.movesMade() at the root of the current search. */
+	private int _rootPly;
+
+	/** The position searched (modified and restored during the search). */
+	private final Board _board;
+	/** Results of earlier searches, possibly shared with other Searchers. */
+	private final TranspositionTable _table;
+	/** Static values of positions, possibly shared, or null. */
+	private final EvalCache _evalCache;
+	/** Endgame tables whose positions are not searched, or null. */
+	private Tablebase _tablebase;
+
+	/** Values of the SearchParameters of the same names. */
+	private final int _lmrMoves, _lmrDepth, _lmrReduction, _futilityDepth,
+			_futilityMargin;
+
+	/** Time (as from System.currentTimeMillis) at which to stop searching. */
+	private final long _deadline;
+	/** True iff the search has been stopped or has run out of time. */
+	private volatile boolean _stopped;
+	/** Number of nodes visited so far. */
+	private long _nodes;
+
+}
@@ -0,0 +1,179 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.BoardTest.*;
+
+/** Tests of the Searcher class.
+ *  @author
+ */
+public class SearcherTest {
+
+    /** Search BOARD to DEPTH with a Searcher whose table is shared by
+     *  THREADS - 1 helper Searchers of the same position on other threads,
+     *  as in MachinePlayer, and return the main Searcher's value.  Sets
+     *  _found to the move it found. */
+    private int search(Board board, int depth, int threads) {
+        TranspositionTable table = new TranspositionTable(1);
+        Searcher main = new Searcher(board, table, Long.MAX_VALUE);
+        Searcher[] helpers = new Searcher[threads - 1];
+        Thread[] running = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = new Searcher(board, table, Long.MAX_VALUE);
+            int firstDepth = 1 + (i + 1) % 2;
+            helpers[i] = helper;
+            running[i] = new Thread(() -> helper.iterate(firstDepth, depth));
+            running[i].start();
+        }
+        int value = main.search(depth);
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stop();
+            try {
+                running[i].join();
+            } catch (InterruptedException excp) {
+                throw new Error("unexpected interrupt");
+            }
+        }
+        assertFalse("search completed", main.stopped());
+        _found = main.foundMove();
+        return value;
+    }
+
+    @Test
+    public void testThreads1() {
+        Board[] boards = {
+            new Board(), new Board(BOARD1, BP), new Board(BOARD1, WP)
+        };
+        for (Board b : boards) {
+            String before = b.toString();
+            search(b, 3, 3);
+            assertTrue("legal move with helpers", b.isLegal(_found));
+            assertEquals("board unchanged", before, b.toString());
+        }
+
+        Board b = endgame("b5 d7", "a5 h6", BP, 10);
+        int single = search(b, 3, 1);
+        Move move = _found;
+        assertEquals("black wins on the third ply",
+                     -Searcher.WINNING_VALUE + 3, single);
+        assertEquals("helpers do not change the value",
+                     single, search(b, 3, 4));
+        assertTrue("legal move with helpers", b.isLegal(_found));
+        b.makeMove(_found);
+        assertEquals("the move found keeps the win",
+                     -Searcher.WINNING_VALUE + 2, search(b, 2, 1));
+        b.retract();
+        assertTrue("one-thread move legal", b.isLegal(move));
+    }
+
+    @Test
+    public void testNoMoves1() {
+        Board b = endgame("a1 h8", "b1 a2 b4 g7 g8 h7", WP, 10);
+        assertEquals("white wins by leaving black no move",
+                     Searcher.WINNING_VALUE - 1, search(b, 1, 1));
+        b.makeMove(_found);
+        assertTrue("black cannot move", b.legalMoves().isEmpty());
+        assertEquals("search of a position with no moves",
+                     Searcher.WINNING_VALUE, search(b, 2, 1));
+        assertNull("no move found", _found);
+    }
+
+    @Test
+    public void testMoveOrder1() {
+        Board b = new Board(BOARD1, BP);
+        Searcher searcher = new Searcher(b, new TranspositionTable(0),
+                                         Long.MAX_VALUE);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves, 0);
+        int[] quiet = new int[n];
+        int numQuiet = 0, numCaptures = 0;
+        for (int i = 0; i < n; i++) {
+            if (Move.isCapture(moves[i])) {
+                numCaptures += 1;
+            } else {
+                quiet[numQuiet++] = moves[i];
+            }
+        }
+        assertTrue("captures and quiet moves", numCaptures > 0
+                   && numQuiet >= 4);
+        int hash = quiet[0], killer1 = quiet[1], killer2 = quiet[2],
+            history = quiet[3];
+        searcher.recordCutoff(history, 4, 1);
+        searcher.recordCutoff(killer2, 1, 0);
+        searcher.recordCutoff(killer1, 1, 0);
+
+        int[] scores = new int[Board.MAX_MOVES];
+        searcher.scoreMoves(moves, scores, n, Move.index(hash), 0);
+        for (int i = 0; i < n; i++) {
+            Searcher.pickMove(moves, scores, i, n);
+        }
+        assertEquals("hash move first", hash, moves[0]);
+        for (int i = 1; i <= numCaptures; i++) {
+            assertTrue("captures next", Move.isCapture(moves[i]));
+        }
+        assertEquals("newest killer", killer1, moves[numCaptures + 1]);
+        assertEquals("older killer", killer2, moves[numCaptures + 2]);
+        assertEquals("best history", history, moves[numCaptures + 3]);
+    }
+
+    /** Return the value of a search of BOARD to DEPTH with reductions and
+     *  futility pruning as aggressive as SearchParameters allows. */
+    private static int prunedSearch(Board board, int depth) {
+        SearchParameters params = new SearchParameters();
+        params.set(SearchParameters.LMR_MOVES, 0);
+        params.set(SearchParameters.LMR_DEPTH, 1);
+        params.set(SearchParameters.LMR_REDUCTION, Searcher.MAX_DEPTH);
+        params.set(SearchParameters.FUTILITY_DEPTH, Searcher.MAX_DEPTH);
+        params.set(SearchParameters.FUTILITY_MARGIN, 0);
+        Searcher searcher =
+            new Searcher(board, new TranspositionTable(1), null,
+                         Long.MAX_VALUE, Searcher.newHistory(), params);
+        return searcher.search(depth);
+    }
+
+    /** Positions, as black and white squares, in which black, to move,
+     *  has a forced win in two moves but not in one. */
+    static final String[][] WINS_IN_TWO = {
+        { "b5 d7", "a5 h6" }, { "f6 e3 f7 h7", "d6 g1 g8" },
+        { "h3 f8 h4", "e4 e1 a7 e2" }, { "f8 e8 g7 h3", "e1 h2 a6 b8" },
+        { "a8 b8 a4", "c1 d5 d3 c2 g3" }, { "c1 b1 d1 g1", "f8 e3 c4" }
+    };
+
+    @Test
+    public void testPruning1() {
+        for (String[] p : WINS_IN_TWO) {
+            Board b = endgame(p[0], p[1], BP, 10);
+            for (int depth = 3; depth <= 5; depth++) {
+                assertEquals("win in two " + p[0] + " vs " + p[1]
+                             + " at depth " + depth,
+                             -Searcher.WINNING_VALUE + 3,
+                             prunedSearch(b, depth));
+            }
+            assertEquals("with default pruning", -Searcher.WINNING_VALUE + 3,
+                         search(b, 4, 1));
+            b.makeMove(_found);
+            for (Move reply : b.legalMoves()) {
+                b.makeMove(reply);
+                for (int depth = 1; depth <= 4; depth++) {
+                    assertEquals("win in one after " + reply,
+                                 -Searcher.WINNING_VALUE + 1,
+                                 prunedSearch(b, depth));
+                }
+                b.retract();
+            }
+        }
+        Board b = endgame("c2 h2", "f3 c5", BP, 10);
+        assertTrue("no win before the fifth ply",
+                   prunedSearch(b, 5) >= -Searcher.WINNING_VALUE + 5);
+        assertEquals("win on the fifth ply", -Searcher.WINNING_VALUE + 5,
+                     search(b, 5, 1));
+    }
+
+    /** The move found by the last search. */
+    private Move _found;
+
+}
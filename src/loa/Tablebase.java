@@ -0,0 +1,478 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import ucb.util.CommandArgs;
+
+import static loa.Square.NUM_SQUARES;
+import static loa.Utils.*;
+
+/**
+ * Endgame tables: the exact values of all positions in which each side has
+ * at least 2 and at most a few pieces, found by retrograde analysis. Since
+ * the rules treat the two colors alike, positions are described by the
+ * pieces of the side to move ("own") and of its opponent ("opp"), and
+ * there is one table for each pair of piece counts. The value of a
+ * position is one byte: DRAW (0) if neither side can force a win, V > 0 if
+ * the side to move wins in V - 1 moves, and V < 0 if it loses in -V - 1
+ * moves, against best defence, ignoring the move limit. As in
+ * Board.winner, a side that cannot move has lost.
+ *
+ * A position's index in its table ranks the own pieces among all
+ * placements of that many pieces, and the opp pieces among the placements
+ * on the squares left empty, each in colexicographic order. Tables are
+ * generated by passes over all positions, the Kth pass finding those won
+ * or lost in exactly K moves, until a pass finds none; the positions of a
+ * pass are divided among several threads.
+ *
+ * @author ChengXu
+ */
+class Tablebase {
+
+	/** Value of a position that neither side can force a win from. */
+	static final int DRAW = 0;
+	/** Result of probing a position that is not in my tables. */
+	static final int NO_ENTRY = Integer.MIN_VALUE;
+	/** Largest number of pieces one side may have in a table. */
+	static final int MAX_PIECES = 3;
+	/** Number of pieces per side of the tables generated by default. */
+	static final int DEFAULT_PIECES = 2;
+	/** Largest distance to a win or loss that a table can record. */
+	static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+	/** A Tablebase with no tables. */
+	Tablebase() {
+	}
+
+	/** Return true iff I have the table for OWN and OPP pieces. */
+	boolean has(int own, int opp) {
+		return own >= 2 && own <= MAX_PIECES && opp >= 2 && opp <= MAX_PIECES
+				&& _values[own][opp] != null;
+	}
+
+	/**
+	 * Return the value (see above) of the position in which the side to move
+	 * has the pieces OWN and its opponent the pieces OPP, or NO_ENTRY if I
+	 * have no table for it, or it is not a win or loss in a table whose
+	 * generation stopped at MAX_DISTANCE.
+	 */
+	int probe(long own, long opp) {
+		int n = Long.bitCount(own), m = Long.bitCount(opp);
+		if (!has(n, m)) {
+			return NO_ENTRY;
+		}
+		int value = _values[n][m][index(own, opp)];
+		return value == DRAW && !_complete[n][m] ? NO_ENTRY : value;
+	}
+
+	/** Return probe(OWN, OPP) for the position on BOARD. */
+	int probe(Board board) {
+		return probe(board.pieces(board.turn()),
+				board.pieces(board.turn().opposite()));
+	}
+
+	/** Return the number of moves to the end of a game of value VALUE. */
+	static int distance(int value) {
+		return Math.abs(value) - 1;
+	}
+
+	/**
+	 * Return a move that keeps the best value for the side to move on BOARD,
+	 * or null if the position is not in my tables or its result would not
+	 * be reached within the move limit. Leaves BOARD unchanged.
+	 */
+	Move bestMove(Board board) {
+		int value = probe(board);
+		if (value == NO_ENTRY
+				|| value != DRAW && distance(value) > board.movesLeft()) {
+			return null;
+		}
+		long own = board.pieces(board.turn()),
+				opp = board.pieces(board.turn().opposite());
+		int[] moves = new int[Board.MAX_MOVES];
+		int numMoves = Board.generateMoves(own, opp, moves, 0);
+		for (int i = 0; i < numMoves; i++) {
+			int reply = successorValue(own, opp, moves[i]);
+			if (reply == NO_ENTRY) {
+				return null;
+			}
+			if (value > 0 ? reply == -value + 1
+					: value < 0 ? reply == -value - 1 : reply == DRAW) {
+				return Move.mv(moves[i]);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Generate all the tables for 2 .. MAXPIECES pieces per side that I do
+	 * not have, using THREADS threads, and report on each on LOG. If DIR is
+	 * not null, save each table into it (see save) as soon as it is done.
+	 */
+	void generate(int maxPieces, int threads, PrintStream log, File dir)
+			throws IOException {
+		if (maxPieces > MAX_PIECES) {
+			throw new IllegalArgumentException("too many pieces for tables");
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (int total = 4; total <= 2 * maxPieces; total++) {
+				for (int n = Math.max(2, total - maxPieces);
+						2 * n <= total; n++) {
+					if (has(n, total - n)) {
+						continue;
+					}
+					generate(n, total - n, pool, log);
+					if (dir != null) {
+						save(dir, n, total - n);
+						save(dir, total - n, n);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Write my tables into directory DIR, one file per table, named as by
+	 * fileName.
+	 */
+	void save(File dir) throws IOException {
+		for (int n = 2; n <= MAX_PIECES; n++) {
+			for (int m = 2; m <= MAX_PIECES; m++) {
+				if (has(n, m)) {
+					save(dir, n, m);
+				}
+			}
+		}
+	}
+
+	/** Write my table for N own and M opp pieces into directory DIR. */
+	private void save(File dir, int n, int m) throws IOException {
+		File file = new File(dir, fileName(n, m));
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(n);
+			out.writeByte(m);
+			out.writeBoolean(_complete[n][m]);
+			out.write(_values[n][m]);
+		}
+	}
+
+	/** Return a Tablebase with all the tables saved in directory DIR. */
+	static Tablebase load(File dir) throws IOException {
+		Tablebase result = new Tablebase();
+		for (int n = 2; n <= MAX_PIECES; n++) {
+			for (int m = 2; m <= MAX_PIECES; m++) {
+				File file = new File(dir, fileName(n, m));
+				if (!file.isFile()) {
+					continue;
+				}
+				try (DataInputStream in = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(file)))) {
+					if (in.readInt() != MAGIC || in.readByte() != n
+							|| in.readByte() != m) {
+						throw new IOException("bad table file " + file);
+					}
+					result._complete[n][m] = in.readBoolean();
+					byte[] values = new byte[(int) size(n, m)];
+					in.readFully(values);
+					result._values[n][m] = values;
+				}
+			}
+		}
+		return result;
+	}
+
+	/** Return the name of the file holding the table for N and M pieces. */
+	static String fileName(int n, int m) {
+		return String.format("loa%dv%d.tb", n, m);
+	}
+
+	/** Return the number of positions with N own and M opp pieces. */
+	static long size(int n, int m) {
+		return (long) COMB[NUM_SQUARES][n] * COMB[NUM_SQUARES - n][m];
+	}
+
+	/**
+	 * Return the index in its table of the position in which the side to
+	 * move has the pieces OWN and its opponent the pieces OPP.
+	 */
+	static int index(long own, long opp) {
+		int n = Long.bitCount(own), m = Long.bitCount(opp);
+		int ownRank = 0, oppRank = 0, k = 1;
+		for (long b = own; b != 0; b &= b - 1, k++) {
+			ownRank += COMB[Long.numberOfTrailingZeros(b)][k];
+		}
+		k = 1;
+		for (long b = opp; b != 0; b &= b - 1, k++) {
+			long below = (b & -b) - 1;
+			oppRank += COMB[Long.numberOfTrailingZeros(b)
+					- Long.bitCount(own & below)][k];
+		}
+		return ownRank * COMB[NUM_SQUARES - n][m] + oppRank;
+	}
+
+	/**
+	 * Generate the tables for N own and M opp pieces and, if different, for
+	 * M own and N opp pieces, which refer to each other, using POOL, and
+	 * report on them on LOG. The tables with fewer pieces that they refer to
+	 * must already be present.
+	 */
+	private void generate(int n, int m, ForkJoinPool pool, PrintStream log) {
+		if (size(n, m) > Integer.MAX_VALUE - 8
+				|| size(m, n) > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("table too large");
+		}
+		long start = System.nanoTime();
+		_values[n][m] = new byte[(int) size(n, m)];
+		_values[m][n] = n == m ? _values[n][m] : new byte[(int) size(m, n)];
+		_complete[n][m] = _complete[m][n] = false;
+		for (int distance = 0; distance <= MAX_DISTANCE; distance++) {
+			long found = pass(n, m, distance, pool);
+			if (n != m) {
+				found += pass(m, n, distance, pool);
+			}
+			if (found == 0) {
+				_complete[n][m] = _complete[m][n] = true;
+				break;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		report(n, m, seconds, log);
+		if (n != m) {
+			report(m, n, seconds, log);
+		}
+	}
+
+	/** Report the counts of wins, losses, and draws in table N, M on LOG. */
+	private void report(int n, int m, double seconds, PrintStream log) {
+		long wins = 0, losses = 0, draws = 0;
+		int longest = 0;
+		for (byte value : _values[n][m]) {
+			if (value > 0) {
+				wins += 1;
+			} else if (value < 0) {
+				losses += 1;
+			} else {
+				draws += 1;
+			}
+			longest = Math.max(longest, distance(value));
+		}
+		log.printf("%s: %d positions: %d wins, %d losses, %d %s;"
+				+ " longest %d moves (%.1f s)%n", fileName(n, m),
+				size(n, m), wins, losses, draws,
+				_complete[n][m] ? "draws" : "unknown", longest, seconds);
+	}
+
+	/**
+	 * Find the values of the positions in table N, M that are won or lost in
+	 * exactly DISTANCE moves, given those of all positions won or lost in
+	 * fewer, using POOL. Return the number found.
+	 */
+	private long pass(int n, int m, int distance, ForkJoinPool pool) {
+		try {
+			return pool.submit(() -> IntStream.range(0, COMB[NUM_SQUARES][n])
+					.parallel().mapToLong(r -> pass(n, m, r, distance)).sum())
+					.get();
+		} catch (InterruptedException | ExecutionException excp) {
+			throw new Error("table generation failed", excp);
+		}
+	}
+
+	/**
+	 * As for pass(N, M, DISTANCE, POOL), but only for the positions whose
+	 * own pieces have rank OWNRANK.
+	 */
+	private long pass(int n, int m, int ownRank, int distance) {
+		byte[] values = _values[n][m];
+		long own = unrank(ownRank, n);
+		int[] empty = new int[NUM_SQUARES - n];
+		for (int s = 0, k = 0; s < NUM_SQUARES; s++) {
+			if ((own & (1L << s)) == 0) {
+				empty[k++] = s;
+			}
+		}
+		int[] moves = new int[Board.MAX_MOVES];
+		int first = ownRank * COMB[NUM_SQUARES - n][m],
+				last = first + COMB[NUM_SQUARES - n][m];
+		long found = 0;
+		long combination = (1L << m) - 1;
+		for (int i = first; i < last; i++) {
+			if (values[i] == DRAW) {
+				long opp = 0;
+				for (long b = combination; b != 0; b &= b - 1) {
+					opp |= 1L << empty[Long.numberOfTrailingZeros(b)];
+				}
+				int value = distance == 0 ? terminalValue(own, opp)
+						: value(own, opp, distance, moves);
+				if (value != DRAW) {
+					values[i] = (byte) value;
+					found += 1;
+				}
+			}
+			long t = combination | (combination - 1);
+			combination = (t + 1) | (((~t & -~t) - 1)
+					>>> (Long.numberOfTrailingZeros(combination) + 1));
+		}
+		return found;
+	}
+
+	/**
+	 * Return the value of the position with OWN pieces to move against OPP
+	 * pieces if the game is over there, and otherwise DRAW.
+	 */
+	private static int terminalValue(long own, long opp) {
+		if (Board.contiguous(opp)) {
+			return -1;
+		} else if (Board.contiguous(own)) {
+			return 1;
+		} else if (!Board.canMove(own, opp)) {
+			return -1;
+		}
+		return DRAW;
+	}
+
+	/**
+	 * Return the value of the position with OWN pieces to move against OPP
+	 * pieces if it is won or lost in exactly DISTANCE (> 0) moves, given
+	 * that it is not won or lost in fewer, and otherwise DRAW. Uses MOVES to
+	 * hold move codes.
+	 */
+	private int value(long own, long opp, int distance, int[] moves) {
+		int numMoves = Board.generateMoves(own, opp, moves, 0);
+		boolean lost = true;
+		for (int i = 0; i < numMoves; i++) {
+			int reply = successorValue(own, opp, moves[i]);
+			assert reply != NO_ENTRY;
+			if (reply < 0 && -reply <= distance) {
+				return distance + 1;
+			} else if (reply <= 0 || reply > distance) {
+				lost = false;
+			}
+		}
+		return lost ? -distance - 1 : DRAW;
+	}
+
+	/**
+	 * Return the value, for the opponent, of the position after the move
+	 * with code CODE by the side to move with OWN pieces against OPP pieces,
+	 * or NO_ENTRY if it is not in my tables.
+	 */
+	private int successorValue(long own, long opp, int code) {
+		int index = Move.index(code);
+		long from = 1L << (index / NUM_SQUARES),
+				to = 1L << (index % NUM_SQUARES);
+		own ^= from | to;
+		opp &= ~to;
+		int value = terminalValue(opp, own);
+		if (value != DRAW) {
+			return value;
+		}
+		int n = Long.bitCount(opp), m = Long.bitCount(own);
+		if (!has(n, m)) {
+			return NO_ENTRY;
+		}
+		return _values[n][m][index(opp, own)];
+	}
+
+	/** Return the placement of N pieces of rank RANK (see index). */
+	private static long unrank(int rank, int n) {
+		long result = 0;
+		int s = NUM_SQUARES - 1;
+		for (int k = n; k > 0; k--) {
+			while (COMB[s][k] > rank) {
+				s -= 1;
+			}
+			rank -= COMB[s][k];
+			result |= 1L << s;
+			s -= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Generate the tables for up to a given number of pieces per side into a
+	 * directory, keeping any already there. ARGS are an optional
+	 * "--threads=N" and "--pieces=N" (the largest number of pieces per side),
+	 * then the directory.
+	 */
+	public static void main(String... args) {
+		CommandArgs options = new CommandArgs(
+				"--threads=(\\d+){0,1} --pieces=(\\d+){0,1} --=(.*){1}", args);
+		List<String> operands = options.get("--");
+		if (!options.ok() || operands.size() != 1) {
+			usage();
+		}
+		int threads = intOption(options, "--threads",
+				Runtime.getRuntime().availableProcessors());
+		int pieces = intOption(options, "--pieces", DEFAULT_PIECES);
+		if (threads < 1 || pieces < 2 || pieces > MAX_PIECES) {
+			usage();
+		}
+
+		File dir = new File(operands.get(0));
+		try {
+			dir.mkdirs();
+			Tablebase tablebase = load(dir);
+			tablebase.generate(pieces, threads, System.out, dir);
+		} catch (IOException excp) {
+			error(1, "Could not read or write tables in %s: %s%n", dir,
+					excp.getMessage());
+		}
+	}
+
+	/** Print a usage message and exit. */
+	private static void usage() {
+		System.err.printf("Usage: java loa.Tablebase [--threads=N]"
+				+ " [--pieces=N] DIRECTORY%n  (N pieces from 2 to %d)%n",
+				MAX_PIECES);
+		System.exit(1);
+	}
+
+	/** First four bytes of a table file. */
+	private static final int MAGIC = 0x4c6f4154;
+
+	/** COMB[S][K] is the number of ways of choosing K of S squares. */
+	private static final int[][] COMB = new int[NUM_SQUARES + 1][];
+
+	static {
+		for (int s = 0; s <= NUM_SQUARES; s++) {
+			COMB[s] = new int[MAX_PIECES + 1];
+			COMB[s][0] = 1;
+			for (int k = 1; k < COMB[s].length && s > 0; k++) {
+				COMB[s][k] = COMB[s - 1][k - 1] + COMB[s - 1][k];
+			}
+		}
+	}
+
+	/**
+	 * _values[N][M] is the table of values of positions with N own and M opp
+	 * pieces, indexed by index(), or null if I do not have it.
+	 */
+	private final byte[][][] _values =
+			new byte[MAX_PIECES + 1][MAX_PIECES + 1][];
+	/**
+	 * _complete[N][M] is true iff the generation of _values[N][M] finished,
+	 * so that its remaining positions are draws.
+	 */
+	private final boolean[][] _complete =
+			new boolean[MAX_PIECES + 1][MAX_PIECES + 1];
+
+}
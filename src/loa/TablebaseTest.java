@@ -0,0 +1,199 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import static loa.BoardTest.*;
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** Tests of the Tablebase class.  The 3v2 tables take too long to
+ *  generate here, so they are checked only if the system property
+ *  loa.tables names a directory holding them (see Tablebase.main).
+ *  @author
+ */
+public class TablebaseTest {
+
+    /** Return the 2v2 table, generated on first use. */
+    private static Tablebase twoPieceTables() throws IOException {
+        if (_twoPieceTables == null) {
+            Tablebase tables = new Tablebase();
+            tables.generate(2, Runtime.getRuntime().availableProcessors(),
+                            new PrintStream(OutputStream.nullOutputStream()),
+                            null);
+            _twoPieceTables = tables;
+        }
+        return _twoPieceTables;
+    }
+
+    /** Return the position with OWN black pieces and OPP white pieces,
+     *  black to move, and a move limit of LIMIT. */
+    private static Board position(long own, long opp, int limit) {
+        return endgame(squares(own), squares(opp), BP, limit);
+    }
+
+    /** Return the names of the squares in PIECES, separated by blanks. */
+    private static String squares(long pieces) {
+        StringBuilder result = new StringBuilder();
+        for (long b = pieces; b != 0; b &= b - 1) {
+            result.append(ALL_SQUARES[Long.numberOfTrailingZeros(b)])
+                .append(' ');
+        }
+        return result.toString().trim();
+    }
+
+    /** Return N distinct random squares not in TAKEN as a bitboard. */
+    private static long randomPieces(Random random, int n, long taken) {
+        long result = 0;
+        while (Long.bitCount(result) < n) {
+            long sq = 1L << random.nextInt(NUM_SQUARES);
+            if ((sq & (taken | result)) == 0) {
+                result |= sq;
+            }
+        }
+        return result;
+    }
+
+    /** Return 1 if the side to move on B can force a win within PLIES
+     *  moves, -1 if its opponent can, and 0 otherwise, by minimax over
+     *  all moves. Leaves B unchanged. */
+    private static int minimax(Board b, int plies) {
+        if (b.gameOver()) {
+            return b.winner() == b.turn() ? 1
+                : b.winner() == EMP ? 0 : -1;
+        } else if (plies == 0) {
+            return 0;
+        }
+        int best = -1;
+        for (Move move : b.legalMoves()) {
+            b.makeMove(move);
+            best = Math.max(best, -minimax(b, plies - 1));
+            b.retract();
+            if (best == 1) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Check the table value VALUE of the position on B, where black is
+     *  to move and the game is not over, against minimax to depth
+     *  MAXPLIES and a proof search. */
+    private static void check(Board b, int value, int maxPlies) {
+        String msg = "value " + value + " of " + b.toString();
+        int plies = Tablebase.distance(value);
+        if (value == Tablebase.DRAW || plies > maxPlies) {
+            assertEquals(msg, 0, minimax(b, Math.min(maxPlies, 3)));
+        } else {
+            int sign = value > 0 ? 1 : -1;
+            assertEquals(msg, sign, minimax(b, plies));
+            assertNotEquals(msg, sign, minimax(b, plies - 1));
+        }
+        int proof = new ProofSearch(b, new ProofTable(1)).solve(200000);
+        if (value > 0) {
+            assertEquals(msg, ProofSearch.PROVED, proof);
+        } else {
+            assertNotEquals(msg, ProofSearch.PROVED, proof);
+        }
+    }
+
+    /** Check the values in TABLES of positions with N black and M white
+     *  pieces and black to move: some random ones, and those reached in
+     *  a random walk of the ones won or lost soonest. */
+    private static void checkRandom(Tablebase tables, int n, int m,
+                                    int count) {
+        Random random = new Random(n * 10 + m);
+        for (int found = 0; found < count;) {
+            long own = randomPieces(random, n, 0L);
+            long opp = randomPieces(random, m, own);
+            Board b = position(own, opp, 100);
+            int value = tables.probe(own, opp);
+            assertNotEquals("in the tables", Tablebase.NO_ENTRY, value);
+            if (b.gameOver() || Tablebase.distance(value) > 3
+                && random.nextInt(4) != 0) {
+                continue;
+            }
+            check(b, value, 3);
+            found += 1;
+        }
+    }
+
+    @Test
+    public void testTablebaseIndex1() {
+        Board b = new Board(BOARD1, BP);
+        int[] moves = new int[Board.MAX_MOVES];
+        assertEquals("static generator agrees with legalMoves",
+                     b.legalMoves().size(),
+                     Board.generateMoves(b.pieces(BP), b.pieces(WP),
+                                         moves, 0));
+        assertEquals("first 2v2 position", 0,
+                     Tablebase.index(0x3L, 0xcL));
+        assertEquals("last 2v2 position", Tablebase.size(2, 2) - 1,
+                     Tablebase.index(0xc000000000000000L,
+                                     0x3000000000000000L));
+        assertEquals("last 3v2 position", Tablebase.size(3, 2) - 1,
+                     Tablebase.index(0xe000000000000000L,
+                                     0x1800000000000000L));
+    }
+
+    @Test
+    public void testTwoPieces1() throws IOException {
+        Tablebase tables = twoPieceTables();
+        Board b = endgame("b5 d7", "a5 h6", BP, 100);
+        assertEquals("forced win in three", 4, tables.probe(b));
+        check(b, 4, 3);
+        b = endgame("c2 h2", "f3 c5", BP, 100);
+        assertEquals("forced win in five", 6, tables.probe(b));
+        check(b, 6, 5);
+        b = endgame("e5 a6", "f5 d6", BP, 100);
+        assertTrue("forced loss or draw", tables.probe(b) <= 0);
+        check(b, tables.probe(b), 3);
+        checkRandom(tables, 2, 2, 200);
+    }
+
+    @Test
+    public void testBestMove1() throws IOException {
+        Tablebase tables = twoPieceTables();
+        Board b = endgame("b5 d7", "a5 h6", BP, 2);
+        Move move = tables.bestMove(b);
+        assertNotNull("win in three within four moves", move);
+        b.makeMove(move);
+        assertEquals("keeps the win", -3, tables.probe(b));
+        b = endgame("b5 d7", "a5 h6", BP, 1);
+        assertNull("win in three not within two moves", tables.bestMove(b));
+        Random random = new Random(5);
+        while (true) {
+            long own = randomPieces(random, 2, 0L);
+            long opp = randomPieces(random, 2, own);
+            if (tables.probe(own, opp) == -3) {
+                b = position(own, opp, 1);
+                assertNotNull("loss in exactly the moves left",
+                              tables.bestMove(b));
+                break;
+            }
+        }
+    }
+
+    @Test
+    public void testThreePieces1() throws IOException {
+        String dir = System.getProperty("loa.tables");
+        assumeTrue(dir != null);
+        Tablebase tables = Tablebase.load(new File(dir));
+        assumeTrue(tables.has(3, 2) && tables.has(2, 3));
+        checkRandom(tables, 3, 2, 50);
+        checkRandom(tables, 2, 3, 50);
+    }
+
+    /** The 2v2 table, once generated. */
+    private static Tablebase _twoPieceTables;
+
+}
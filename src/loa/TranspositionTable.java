@@ -0,0 +1,176 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results, indexed by Board.key(). Entries are
+ * kept in two parallel primitive arrays (keys and packed data), so the table
+ * allocates nothing after construction. Each bucket holds two entries: the
+ * first is replaced only by results from at least as deep a search (or from
+ * an earlier search), the second is always replaced.
+ *
+ * The table may be shared by several searching threads without locking.
+ * Each entry's key is stored XORed with its data, so an entry whose two
+ * words were written by different threads simply fails to match on probe.
+ *
+ * @author ChengXu
+ */
+class TranspositionTable {
+
+	/** Bound types: the stored score is exact, a lower or an upper bound. */
+	static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+	/** Value of a move index denoting no move. */
+	static final int NO_MOVE = -1;
+
+	/** Default size of the table in megabytes. */
+	static final int DEFAULT_SIZE_MB = 16;
+
+	/** Number of bytes used by one entry (key and data). */
+	static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+	/** Largest number of entries in a table (so that they fit in an array). */
+	static final int MAX_ENTRIES = 1 << 30;
+
+	/** Largest size of a table in megabytes. */
+	static final int MAX_SIZE_MB = (MAX_ENTRIES >> 20) * ENTRY_BYTES;
+
+	/** Number of entries in one bucket. */
+	private static final int BUCKET_SIZE = 2;
+
+	/** A table using about MEGABYTES (at most MAX_SIZE_MB) megabytes. */
+	TranspositionTable(int megabytes) {
+		_megabytes = megabytes;
+		int buckets = numBuckets(megabytes, ENTRY_BYTES, BUCKET_SIZE);
+		_mask = buckets - 1;
+		_keys = new long[buckets * BUCKET_SIZE];
+		_data = new long[buckets * BUCKET_SIZE];
+	}
+
+	/**
+	 * Return the number of buckets, each of BUCKETSIZE entries of ENTRYBYTES
+	 * bytes, in a table of about MEGABYTES megabytes: the largest power of
+	 * two that fits, but at least 1, and with at most MAX_ENTRIES entries in
+	 * all.
+	 */
+	static int numBuckets(int megabytes, int entryBytes, int bucketSize) {
+		long buckets = ((long) megabytes << 20) / entryBytes / bucketSize;
+		return Integer.highestOneBit((int) Math.max(1,
+				Math.min(buckets, MAX_ENTRIES / bucketSize)));
+	}
+
+	/** Return the size I was created with, in megabytes. */
+	int megabytes() {
+		return _megabytes;
+	}
+
+	/** Remove all entries. */
+	void clear() {
+		Arrays.fill(_keys, 0L);
+		Arrays.fill(_data, 0L);
+		_generation = 0;
+	}
+
+	/**
+	 * Mark the start of a new search, so that entries from earlier searches
+	 * lose their protection from replacement.
+	 */
+	void newSearch() {
+		_generation = (_generation + 1) & GENERATION_MASK;
+	}
+
+	/**
+	 * Return the packed data stored for KEY, or 0 if there is none. Use the
+	 * static accessors below to unpack the result.
+	 */
+	long probe(long key) {
+		int slot = bucket(key);
+		for (int i = slot; i < slot + BUCKET_SIZE; i++) {
+			long data = _data[i];
+			if (data != 0 && (_keys[i] ^ data) == key) {
+				return data;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Record a search result for KEY: SCORE, of bound type BOUND, from a search
+	 * of DEPTH plies, whose best move has index MOVE (or is NO_MOVE).
+	 */
+	void store(long key, int depth, int bound, int score, int move) {
+		int slot = bucket(key);
+		long data = pack(depth, bound, score, move);
+		long old = _data[slot];
+		boolean sameKey = old != 0 && (_keys[slot] ^ old) == key;
+		if (sameKey || old == 0 || depth >= depth(old)
+				|| generation(old) != _generation) {
+			if (move == NO_MOVE && sameKey) {
+				data = pack(depth, bound, score, move(old));
+			}
+		} else {
+			slot += 1;
+		}
+		_data[slot] = data;
+		_keys[slot] = key ^ data;
+	}
+
+	/** Return the search depth recorded in DATA. */
+	static int depth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+	}
+
+	/** Return the bound type (EXACT, LOWER, or UPPER) recorded in DATA. */
+	static int bound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+	}
+
+	/** Return the score recorded in DATA. */
+	static int score(long data) {
+		return (int) data;
+	}
+
+	/** Return the best-move index recorded in DATA, or NO_MOVE. */
+	static int move(long data) {
+		return ((int) (data >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+	}
+
+	/** Return the search generation recorded in DATA. */
+	private static int generation(long data) {
+		return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+	}
+
+	/** Return DEPTH, BOUND, SCORE, MOVE and the generation, packed. */
+	private long pack(int depth, int bound, int score, int move) {
+		return (score & 0xffffffffL)
+				| ((long) (move + 1) & MOVE_MASK) << MOVE_SHIFT
+				| ((long) Math.min(depth, DEPTH_MASK)) << DEPTH_SHIFT
+				| ((long) bound) << BOUND_SHIFT
+				| ((long) _generation) << GENERATION_SHIFT;
+	}
+
+	/** Return the index of the first entry of the bucket for KEY. */
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & _mask) * BUCKET_SIZE;
+	}
+
+	/** Layout of the packed data: score in the low 32 bits, then these. */
+	private static final int MOVE_SHIFT = 32, MOVE_MASK = (1 << 13) - 1,
+			DEPTH_SHIFT = 45, DEPTH_MASK = (1 << 8) - 1, BOUND_SHIFT = 53,
+			BOUND_MASK = 3, GENERATION_SHIFT = 55,
+			GENERATION_MASK = (1 << 8) - 1;
+
+	/** Size in megabytes requested at construction. */
+	private final int _megabytes;
+	/** Mask selecting a bucket number from a hashed key. */
+	private final int _mask;
+	/** Keys of all entries, each XORed with the entry's data. */
+	private final long[] _keys;
+	/** Packed data of all entries (0 for an empty entry). */
+	private final long[] _data;
+	/** Generation number of the current search. */
+	private int _generation;
+
+}
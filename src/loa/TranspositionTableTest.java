@@ -0,0 +1,67 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the TranspositionTable class.
+ *  @author
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testTranspositionTable1() {
+        TranspositionTable table = new TranspositionTable(0);
+        long k1 = 0x1234L, k2 = 0x5678L << 32, k3 = 0x9abcL;
+        table.store(k1, 5, TranspositionTable.EXACT, -42, 100);
+        long entry = table.probe(k1);
+        assertEquals("depth", 5, TranspositionTable.depth(entry));
+        assertEquals("bound", TranspositionTable.EXACT,
+                     TranspositionTable.bound(entry));
+        assertEquals("score", -42, TranspositionTable.score(entry));
+        assertEquals("move", 100, TranspositionTable.move(entry));
+        assertEquals("missing key", 0L, table.probe(k2));
+
+        table.store(k1, 6, TranspositionTable.LOWER, 7,
+                    TranspositionTable.NO_MOVE);
+        entry = table.probe(k1);
+        assertEquals("new score", 7, TranspositionTable.score(entry));
+        assertEquals("old move kept", 100, TranspositionTable.move(entry));
+
+        table.store(k2, 3, TranspositionTable.UPPER, 1, 200);
+        assertNotEquals("deeper entry kept", 0L, table.probe(k1));
+        assertEquals("shallower entry in second slot", 200,
+                     TranspositionTable.move(table.probe(k2)));
+        table.store(k3, 2, TranspositionTable.UPPER, 2, 300);
+        assertEquals("second slot replaced", 0L, table.probe(k2));
+        assertNotEquals("deeper entry still kept", 0L, table.probe(k1));
+
+        table.newSearch();
+        table.store(k2, 1, TranspositionTable.EXACT, 3,
+                    TranspositionTable.NO_MOVE);
+        assertEquals("old search's entry replaced", 0L, table.probe(k1));
+        assertEquals("no move", TranspositionTable.NO_MOVE,
+                     TranspositionTable.move(table.probe(k2)));
+    }
+
+    @Test
+    public void testNumBuckets1() {
+        assertEquals("at least one bucket", 1,
+                     TranspositionTable.numBuckets(0, 16, 2));
+        assertEquals("default size", 1 << 19,
+                     TranspositionTable.numBuckets(16, 16, 2));
+        assertEquals("rounded down to a power of two", 1 << 19,
+                     TranspositionTable.numBuckets(31, 16, 2));
+        assertEquals("largest table", TranspositionTable.MAX_ENTRIES / 2,
+                     TranspositionTable.numBuckets(
+                         TranspositionTable.MAX_SIZE_MB, 16, 2));
+        assertEquals("capped so the entries fit in an array",
+                     TranspositionTable.MAX_ENTRIES / 2,
+                     TranspositionTable.numBuckets(40000, 16, 2));
+        assertEquals("capped at the largest int",
+                     TranspositionTable.MAX_ENTRIES / 2,
+                     TranspositionTable.numBuckets(Integer.MAX_VALUE, 16, 2));
+    }
+
+}
@@ -0,0 +1,253 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import ucb.util.CommandArgs;
+
+import static loa.EvalWeights.*;
+import static loa.Piece.*;
+import static loa.Utils.*;
+
+/**
+ * Fits the weights of Board.value to the results of games (Texel's
+ * method). Positions are taken from game logs as written by the --log
+ * option of Main, and labelled with the result of their game. Each position
+ * is kept only as the features (Board.features) of black and white, so the
+ * static value of every position under any weights is computed exactly as
+ * Board.value would (see EvalWeights.value), and millions of positions fit
+ * in memory. The weights are fitted by local search, minimizing the
+ * logistic loss of the predicted results, with the loss computed in
+ * parallel.
+ *
+ * @author ChengXu
+ */
+class Tuner {
+
+	/** A Tuner with no positions that uses THREADS threads. */
+	Tuner(int threads) {
+		_pool = new ForkJoinPool(threads);
+	}
+
+	/** Return the number of positions I have. */
+	int size() {
+		return _size;
+	}
+
+	/**
+	 * Add the positions of the finished games in the log file named NAME
+	 * (see GameLog), except their initial and final positions.
+	 */
+	void addLog(String name) throws IOException {
+		for (Board game : GameLog.read(name)) {
+			int gameStart = _size;
+			Piece winner = game.winner();
+			game.retract();
+			while (game.movesMade() > 0) {
+				add(game);
+				game.retract();
+			}
+			label(gameStart, winner);
+		}
+	}
+
+	/** Add the position on BOARD, labelled with the result of a WINNER win. */
+	void add(Board board, Piece winner) {
+		add(board);
+		label(_size - 1, winner);
+	}
+
+	/**
+	 * Return the constant K for which the predicted probability of a white
+	 * win in a position of static value V, 1 / (1 + exp(-K * V)), best fits
+	 * my positions under WEIGHTS.
+	 */
+	double fitScale(int[] weights) {
+		double lo = 1e-4, hi = 1.0;
+		for (int i = 0; i < SCALE_SEARCH_STEPS; i++) {
+			double a = lo + (hi - lo) / 3, b = hi - (hi - lo) / 3;
+			if (loss(weights, a) < loss(weights, b)) {
+				hi = b;
+			} else {
+				lo = a;
+			}
+		}
+		return (lo + hi) / 2;
+	}
+
+	/**
+	 * Return the mean logistic loss of the predicted results of my positions
+	 * under WEIGHTS, with scale constant K (see fitScale).
+	 */
+	double loss(int[] weights, double k) {
+		int n = _size;
+		EvalWeights w = new EvalWeights(weights);
+		try {
+			double total = _pool.submit(() -> IntStream.range(0, n)
+					.parallel().mapToDouble(j -> loss(w, k, j)).sum()).get();
+			return n == 0 ? 0.0 : total / n;
+		} catch (InterruptedException | ExecutionException excp) {
+			throw new Error("loss computation failed", excp);
+		}
+	}
+
+	/**
+	 * Return weights, starting from START, that locally minimize the loss
+	 * with scale constant K. Each weight in turn is moved up or down by a
+	 * step while that lowers the loss; the step is halved whenever no weight
+	 * moves, until a step of 1 moves none. Stops after at most PASSES passes
+	 * over the weights, reporting the loss after each on LOG.
+	 */
+	int[] tune(int[] start, double k, int passes, PrintStream log) {
+		int[] best = start.clone();
+		double bestLoss = loss(best, k);
+		int step = INITIAL_STEP;
+		for (int pass = 1; pass <= passes; pass++) {
+			boolean improved = false;
+			for (int i = 0; i < NUM_WEIGHTS; i++) {
+				for (int delta : new int[] { step, -step }) {
+					int[] trial = best.clone();
+					trial[i] += delta;
+					double trialLoss = loss(trial, k);
+					if (trialLoss < bestLoss) {
+						best = trial;
+						bestLoss = trialLoss;
+						improved = true;
+						break;
+					}
+				}
+			}
+			log.printf("pass %d: step %d, loss %.6f, weights %s%n", pass,
+					step, bestLoss, Arrays.toString(best));
+			if (!improved) {
+				if (step == 1) {
+					break;
+				}
+				step /= 2;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the logistic loss of position J with weights W and scale
+	 * constant K.
+	 */
+	private double loss(EvalWeights w, double k, int j) {
+		int f = 2 * NUM_WEIGHTS * j;
+		int v = w.value(_features, f) - w.value(_features, f + NUM_WEIGHTS);
+		double y = _results[j] / 2.0;
+		double p = 1.0 / (1.0 + Math.exp(-k * v));
+		p = Math.min(Math.max(p, EPSILON), 1.0 - EPSILON);
+		return -(y * Math.log(p) + (1.0 - y) * Math.log(1.0 - p));
+	}
+
+	/** Add the position on BOARD, with as yet unknown result. */
+	private void add(Board board) {
+		if (_size == _results.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, 2 * _size);
+			_results = Arrays.copyOf(_results, capacity);
+			_features = Arrays.copyOf(_features,
+					2 * NUM_WEIGHTS * capacity);
+		}
+		board.features(BP, _black);
+		board.features(WP, _white);
+		int f = 2 * NUM_WEIGHTS * _size;
+		System.arraycopy(_black, 0, _features, f, NUM_WEIGHTS);
+		System.arraycopy(_white, 0, _features, f + NUM_WEIGHTS, NUM_WEIGHTS);
+		_size += 1;
+	}
+
+	/** Label positions FROM .. size()-1 with the result of a WINNER win. */
+	private void label(int from, Piece winner) {
+		byte result = (byte) (winner == WP ? 2 : winner == BP ? 0 : 1);
+		Arrays.fill(_results, from, _size, result);
+	}
+
+	/**
+	 * Fit the weights to game logs and write them to a file. ARGS are an
+	 * optional "--threads=N" and "--passes=N", then the output file, then
+	 * one or more log files.
+	 */
+	public static void main(String... args) {
+		CommandArgs options = new CommandArgs(
+				"--threads=(\\d+){0,1} --passes=(\\d+){0,1} --=(.*){2,}", args);
+		List<String> operands = options.get("--");
+		if (!options.ok() || operands.size() < 2) {
+			usage();
+		}
+		int threads = intOption(options, "--threads",
+				Runtime.getRuntime().availableProcessors());
+		int passes = intOption(options, "--passes", DEFAULT_PASSES);
+		if (threads < 1) {
+			usage();
+		}
+
+		Tuner tuner = new Tuner(threads);
+		for (String log : operands.subList(1, operands.size())) {
+			try {
+				tuner.addLog(log);
+			} catch (IOException excp) {
+				error(1, "Could not read %s: %s%n", log, excp.getMessage());
+			}
+		}
+		System.out.printf("%d positions%n", tuner.size());
+		if (tuner.size() == 0) {
+			error(1, "No finished games found%n");
+		}
+		int[] weights = Board.getWeights().toArray();
+		double scale = tuner.fitScale(weights);
+		System.out.printf("scale constant %.6f, loss %.6f%n", scale,
+				tuner.loss(weights, scale));
+		weights = tuner.tune(weights, scale, passes, System.out);
+		try (PrintStream out = new PrintStream(operands.get(0))) {
+			out.printf("# Fitted to %d positions; loss %.6f%n",
+					tuner.size(), tuner.loss(weights, scale));
+			new EvalWeights(weights).write(out);
+		} catch (IOException excp) {
+			error(1, "Could not write %s: %s%n", operands.get(0),
+					excp.getMessage());
+		}
+	}
+
+	/** Print a usage message and exit. */
+	private static void usage() {
+		System.err.println("Usage: java loa.Tuner [--threads=N] [--passes=N]"
+				+ " WEIGHTS-FILE LOG-FILE...");
+		System.exit(1);
+	}
+
+	/** Default limit on passes of the local search. */
+	private static final int DEFAULT_PASSES = 100;
+	/** First step size of the local search. */
+	private static final int INITIAL_STEP = 8;
+	/** Number of ternary-search steps used to fit the scale constant. */
+	private static final int SCALE_SEARCH_STEPS = 60;
+	/** Bound on how close predicted probabilities may come to 0 or 1. */
+	private static final double EPSILON = 1e-9;
+	/** Number of positions allocated for at first. */
+	private static final int INITIAL_CAPACITY = 1 << 16;
+
+	/** Threads used to compute the loss. */
+	private final ForkJoinPool _pool;
+	/**
+	 * Features of my positions: for each, NUM_WEIGHTS consecutive values
+	 * for black followed by NUM_WEIGHTS for white.
+	 */
+	private int[] _features = new int[0];
+	/** Results of my positions: 0 (black won), 1 (tie), or 2 (white won). */
+	private byte[] _results = new byte[0];
+	/** Number of positions. */
+	private int _size;
+	/** Buffers for the features of one position. */
+	private final int[] _black = new int[NUM_WEIGHTS],
+			_white = new int[NUM_WEIGHTS];
+
+}
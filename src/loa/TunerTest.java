@@ -0,0 +1,61 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.EvalWeights.*;
+import static loa.Piece.*;
+
+/** Tests of the Tuner class.
+ *  @author
+ */
+public class TunerTest {
+
+    /** Return a Tuner holding the positions of random games, each
+     *  labelled as won by the side the default weights favor. */
+    private Tuner syntheticTuner() {
+        Tuner tuner = new Tuner(2);
+        Random random = new Random(42);
+        for (int game = 0; game < 20; game += 1) {
+            Board b = new Board();
+            for (int ply = 0; ply < 30 && !b.gameOver(); ply += 1) {
+                List<Move> moves = b.legalMoves();
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+                int v = b.valueBPMinusWP();
+                tuner.add(b, v > 0 ? WP : v < 0 ? BP : EMP);
+            }
+        }
+        return tuner;
+    }
+
+    @Test
+    public void testLoss1() {
+        Tuner tuner = syntheticTuner();
+        assertTrue("positions added", tuner.size() > 100);
+        int[] zero = new int[NUM_WEIGHTS];
+        assertEquals("uninformed loss", Math.log(2), tuner.loss(zero, 0.5),
+                     1e-9);
+        int[] defaults = Board.getWeights().toArray();
+        assertTrue("labelling weights fit better",
+                   tuner.loss(defaults, 0.5) < 0.5 * Math.log(2));
+    }
+
+    @Test
+    public void testTune1() {
+        Tuner tuner = syntheticTuner();
+        int[] zero = new int[NUM_WEIGHTS];
+        double start = tuner.loss(zero, 0.5);
+        PrintStream log = new PrintStream(OutputStream.nullOutputStream());
+        int[] tuned = tuner.tune(zero, 0.5, 20, log);
+        double end = tuner.loss(tuned, 0.5);
+        assertTrue("tuning lowers the loss", end < 0.75 * start);
+    }
+
+}
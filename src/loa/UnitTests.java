@@ -15,6 +15,14 @@ public class UnitTests {
     public static void main(String[] ignored) {
         textui.runClasses(UnitTests.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(SearcherTest.class);
+        textui.runClasses(EvalCacheTest.class);
+        textui.runClasses(TunerTest.class);
+        textui.runClasses(MCTSTest.class);
+        textui.runClasses(ProofSearchTest.class);
+        textui.runClasses(GameLogTest.class);
+        textui.runClasses(TablebaseTest.class);
     }
 
     /** A dummy test to avoid complaint. */
@@ -2,6 +2,8 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import ucb.util.CommandArgs;
+
 /** Miscellaneous utilties.
  *  @author P. N. Hilfinger */
 
@@ -27,6 +29,42 @@ class Utils {
         }
     }
 
+    /** Return the value of the option NAME in OPTIONS, or DEFAULTVALUE if
+     *  it is absent.  Exits with an error if the value does not fit in an
+     *  int. */
+    static int intOption(CommandArgs options, String name,
+                         int defaultValue) {
+        return (int) longOption(options, name, defaultValue,
+                                Integer.MAX_VALUE);
+    }
+
+    /** As for intOption(OPTIONS, NAME, DEFAULTVALUE), but for a long. */
+    static long longOption(CommandArgs options, String name,
+                           long defaultValue) {
+        return longOption(options, name, defaultValue, Long.MAX_VALUE);
+    }
+
+    /** Return the value of the option NAME in OPTIONS, or DEFAULTVALUE if
+     *  it is absent.  Exits with an error if the value is not a number or
+     *  is greater than MAX. */
+    private static long longOption(CommandArgs options, String name,
+                                   long defaultValue, long max) {
+        if (!options.contains(name)) {
+            return defaultValue;
+        }
+        String value = options.getFirst(name);
+        try {
+            long result = Long.parseLong(value);
+            if (result <= max) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to the error below. */
+        }
+        error(1, "Invalid number for %s: %s%n", name, value);
+        return defaultValue;
+    }
+
     /** Set "strict" mode to STRICT, which causes any error to exit the
      *  program. */
     static void setStrict(boolean strict) {